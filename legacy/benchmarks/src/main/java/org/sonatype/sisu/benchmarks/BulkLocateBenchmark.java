@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.sisu.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonatype.guice.bean.locators.DefaultBeanLocator;
+import org.sonatype.inject.BeanEntry;
+import org.sonatype.sisu.benchmarks.Fixtures.Bean;
+
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.name.Names;
+
+/**
+ * Compares resolving a request's worth of keys one by one with {@link DefaultBeanLocator#locateAll}, starting from a
+ * fresh locator so publisher subscription is part of the measurement.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class BulkLocateBenchmark
+{
+    private static final int KEYS = 40;
+
+    @Param( { "1", "10", "50" } )
+    int publishers;
+
+    Injector[] injectors;
+
+    List<Key<?>> keys;
+
+    DefaultBeanLocator locator;
+
+    @Setup
+    public void setUp()
+    {
+        injectors = new Injector[publishers];
+        for ( int i = 0; i < publishers; i++ )
+        {
+            injectors[i] = Fixtures.injector( KEYS );
+        }
+        keys = new ArrayList<Key<?>>( KEYS );
+        for ( int i = 0; i < KEYS; i++ )
+        {
+            keys.add( Key.get( Bean.class, Names.named( "bean" + i ) ) );
+        }
+    }
+
+    @Setup( Level.Invocation )
+    public void newLocator()
+    {
+        locator = (DefaultBeanLocator) Fixtures.legacyLocator( injectors );
+    }
+
+    @Benchmark
+    public void locateEach( final Blackhole blackhole )
+    {
+        for ( final Key<?> key : keys )
+        {
+            for ( final BeanEntry<?, ?> entry : locator.locate( key ) )
+            {
+                blackhole.consume( entry );
+            }
+        }
+    }
+
+    @Benchmark
+    public void locateAll( final Blackhole blackhole )
+    {
+        for ( final Iterable<? extends BeanEntry<?, ?>> beans : locator.locateAll( keys ).values() )
+        {
+            for ( final BeanEntry<?, ?> entry : beans )
+            {
+                blackhole.consume( entry );
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.sisu.benchmarks;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.sisu.space.DefaultClassFinder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonatype.guice.bean.reflect.URLClassSpace;
+import org.sonatype.guice.bean.scanners.ClassSpaceScanner;
+import org.sonatype.guice.bean.scanners.EmptyClassVisitor;
+
+/**
+ * Compares reading class bytes through per-class {@code jar:} URL streams with reading them from memory-mapped jars.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class ClassBytesBenchmark
+{
+    @Param( { "false", "true" } )
+    boolean mapped;
+
+    List<URL> classes;
+
+    @Setup
+    public void setUp()
+    {
+        final URL[] path = { ScanBenchmark.codeSource( ClassBytesBenchmark.class ) };
+        final URLClassSpace space = new URLClassSpace( ClassBytesBenchmark.class.getClassLoader(), path );
+
+        classes = new ArrayList<URL>();
+        for ( final Enumeration<URL> e = new DefaultClassFinder().findClasses( space ); e.hasMoreElements(); )
+        {
+            classes.add( e.nextElement() );
+        }
+
+        ClassSpaceScanner.setMappedJars( mapped );
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        ClassSpaceScanner.setMappedJars( false );
+    }
+
+    @Benchmark
+    public void acceptAll( final Blackhole bh )
+    {
+        final EmptyClassVisitor visitor = new EmptyClassVisitor()
+        {
+            @Override
+            public void visit( final int version, final int access, final String name, final String signature,
+                               final String superName, final String[] interfaces )
+            {
+                bh.consume( name );
+            }
+        };
+        for ( final URL url : classes )
+        {
+            ClassSpaceScanner.accept( visitor, url );
+        }
+    }
+}
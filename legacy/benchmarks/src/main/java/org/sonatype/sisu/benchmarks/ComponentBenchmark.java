@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.sisu.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.plexus.component.annotations.Component;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonatype.guice.plexus.annotations.ComponentImpl;
+import org.sonatype.sisu.benchmarks.Fixtures.Bean;
+
+/**
+ * Compares {@link ComponentImpl#hashCode()} and {@link ComponentImpl#equals(Object)} with the Eclipse/Sisu version,
+ * including equality against other {@link Component} implementations, interned instances and map lookups.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ComponentBenchmark
+{
+    Component legacyComponent;
+
+    Component legacyOther;
+
+    Component eclipseComponent;
+
+    Component eclipseOther;
+
+    Map<Component, Object> legacyMap;
+
+    Map<Component, Object> eclipseMap;
+
+    @Setup
+    public void setUp()
+    {
+        legacyComponent = new ComponentImpl( Bean.class, "default", "singleton", "" );
+        legacyOther = new ComponentImpl( Bean.class, new String( "default" ), "singleton", "" );
+
+        eclipseComponent = new org.eclipse.sisu.plexus.ComponentImpl( Bean.class, "default", "singleton", "" );
+        eclipseOther =
+            new org.eclipse.sisu.plexus.ComponentImpl( Bean.class, new String( "default" ), "singleton", "" );
+
+        legacyMap = new HashMap<Component, Object>();
+        eclipseMap = new HashMap<Component, Object>();
+        for ( int i = 0; i < 100; i++ )
+        {
+            legacyMap.put( new ComponentImpl( Bean.class, "hint" + i, "singleton", "" ), this );
+            eclipseMap.put( new org.eclipse.sisu.plexus.ComponentImpl( Bean.class, "hint" + i, "singleton", "" ),
+                            this );
+        }
+        legacyMap.put( legacyOther, this );
+        eclipseMap.put( eclipseOther, this );
+    }
+
+    @Benchmark
+    public int legacyHashCode()
+    {
+        return legacyComponent.hashCode();
+    }
+
+    @Benchmark
+    public int eclipseHashCode()
+    {
+        return eclipseComponent.hashCode();
+    }
+
+    @Benchmark
+    public boolean legacyEquals()
+    {
+        return legacyComponent.equals( legacyOther );
+    }
+
+    @Benchmark
+    public boolean eclipseEquals()
+    {
+        return eclipseComponent.equals( eclipseOther );
+    }
+
+    @Benchmark
+    public boolean legacyEqualsOtherImpl()
+    {
+        return legacyComponent.equals( eclipseOther );
+    }
+
+    @Benchmark
+    public boolean eclipseEqualsOtherImpl()
+    {
+        return eclipseComponent.equals( legacyOther );
+    }
+
+    @Benchmark
+    public Component legacyIntern()
+    {
+        return ComponentImpl.intern( Bean.class, "default", "singleton", "" );
+    }
+
+    @Benchmark
+    public Object legacyMapLookup()
+    {
+        return legacyMap.get( legacyComponent );
+    }
+
+    @Benchmark
+    public Object eclipseMapLookup()
+    {
+        return eclipseMap.get( eclipseComponent );
+    }
+}
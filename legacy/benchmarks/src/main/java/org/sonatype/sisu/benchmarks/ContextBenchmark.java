@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.sisu.benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonatype.guice.bean.containers.SisuGuice;
+import org.sonatype.sisu.benchmarks.Fixtures.Bean;
+
+import com.google.inject.Key;
+
+/**
+ * Spawns a burst of short-lived threads that each look up a bean, either through the inherited thread-local locator
+ * or through an explicit {@link SisuGuice.Context} handle. Uses virtual threads when the running JDK has them.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ContextBenchmark
+{
+    private static final int THREADS = 100;
+
+    private static final Key<Bean> KEY = Key.get( Bean.class );
+
+    private static final Method START_VIRTUAL_THREAD;
+
+    static
+    {
+        Method startVirtualThread;
+        try
+        {
+            startVirtualThread = Thread.class.getMethod( "startVirtualThread", Runnable.class );
+        }
+        catch ( final Exception e )
+        {
+            startVirtualThread = null;
+        }
+        START_VIRTUAL_THREAD = startVirtualThread;
+    }
+
+    org.eclipse.sisu.inject.BeanLocator locator;
+
+    SisuGuice.Context context;
+
+    @Setup
+    public void setUp()
+    {
+        locator = Fixtures.eclipseLocator( Fixtures.injector( 10 ) );
+        context = SisuGuice.context( locator );
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        SisuGuice.setBeanLocator( null );
+    }
+
+    @Benchmark
+    public void threadLocalLookup( final Blackhole blackhole )
+        throws Exception
+    {
+        SisuGuice.setBeanLocator( locator );
+        burst( new Runnable()
+        {
+            public void run()
+            {
+                blackhole.consume( SisuGuice.lookup( KEY ) );
+            }
+        } );
+    }
+
+    @Benchmark
+    public void contextLookup( final Blackhole blackhole )
+        throws Exception
+    {
+        SisuGuice.setBeanLocator( null );
+        burst( new Runnable()
+        {
+            public void run()
+            {
+                blackhole.consume( context.lookup( KEY ) );
+            }
+        } );
+    }
+
+    private static void burst( final Runnable task )
+        throws Exception
+    {
+        final CountDownLatch done = new CountDownLatch( THREADS );
+        final Runnable counted = new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    task.run();
+                }
+                finally
+                {
+                    done.countDown();
+                }
+            }
+        };
+        for ( int i = 0; i < THREADS; i++ )
+        {
+            if ( null != START_VIRTUAL_THREAD )
+            {
+                START_VIRTUAL_THREAD.invoke( null, counted );
+            }
+            else
+            {
+                new Thread( counted ).start();
+            }
+        }
+        done.await();
+    }
+}
@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.sisu.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonatype.guice.bean.reflect.ClassSpace;
+import org.sonatype.guice.bean.reflect.URLClassSpace;
+import org.sonatype.guice.bean.scanners.ClassSpaceScanner;
+
+/**
+ * Compares sequential scanning with executor-based scanning, on platform and virtual threads, over a synthetic class
+ * path of 1,000 small jars. Virtual threads need a Java 21+ runtime, otherwise that case uses platform threads.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class ExecutorScanBenchmark
+{
+    static final int JARS = 1000;
+
+    static final int CLASSES_PER_JAR = 10;
+
+    File jarDir;
+
+    ClassSpace space;
+
+    ExecutorService platformThreads;
+
+    ExecutorService virtualThreads;
+
+    @Setup
+    public void setUp()
+        throws IOException
+    {
+        final List<byte[]> classes = new ArrayList<byte[]>();
+        final List<String> names = new ArrayList<String>();
+        final JarFile source = new JarFile( new File( ScanBenchmark.codeSource( ClassSpaceScanner.class ).getPath() ) );
+        try
+        {
+            for ( final Enumeration<JarEntry> e = source.entries(); e.hasMoreElements(); )
+            {
+                final JarEntry entry = e.nextElement();
+                if ( entry.getName().startsWith( "org/sonatype/" ) && entry.getName().endsWith( ".class" ) )
+                {
+                    names.add( entry.getName() );
+                    classes.add( readFully( source.getInputStream( entry ) ) );
+                }
+            }
+        }
+        finally
+        {
+            source.close();
+        }
+
+        jarDir = File.createTempFile( "sisu-scan", "" );
+        jarDir.delete();
+        jarDir.mkdirs();
+
+        final URL[] path = new URL[JARS];
+        for ( int i = 0, c = 0; i < JARS; i++ )
+        {
+            final File jar = new File( jarDir, "synthetic-" + i + ".jar" );
+            final JarOutputStream out = new JarOutputStream( new FileOutputStream( jar ) );
+            try
+            {
+                for ( int n = 0; n < CLASSES_PER_JAR; n++, c = ( c + 1 ) % classes.size() )
+                {
+                    out.putNextEntry( new JarEntry( names.get( c ) ) );
+                    out.write( classes.get( c ) );
+                    out.closeEntry();
+                }
+            }
+            finally
+            {
+                out.close();
+            }
+            path[i] = jar.toURI().toURL();
+        }
+
+        space = new URLClassSpace( new URLClassLoader( path, ExecutorScanBenchmark.class.getClassLoader() ), path );
+
+        platformThreads = Executors.newFixedThreadPool( Runtime.getRuntime().availableProcessors() );
+        virtualThreads = newVirtualExecutor();
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        platformThreads.shutdown();
+        virtualThreads.shutdown();
+        for ( final File jar : jarDir.listFiles() )
+        {
+            jar.delete();
+        }
+        jarDir.delete();
+    }
+
+    @Benchmark
+    public void sequentialScan( final Blackhole bh )
+    {
+        new ClassSpaceScanner( space ).accept( ScanBenchmark.qualifiedTypeVisitor( bh ) );
+    }
+
+    @Benchmark
+    public void platformThreadScan( final Blackhole bh )
+    {
+        final ClassSpaceScanner scanner = new ClassSpaceScanner( space );
+        scanner.setExecutor( platformThreads );
+        scanner.accept( ScanBenchmark.qualifiedTypeVisitor( bh ) );
+    }
+
+    @Benchmark
+    public void virtualThreadScan( final Blackhole bh )
+    {
+        final ClassSpaceScanner scanner = new ClassSpaceScanner( space );
+        scanner.setExecutor( virtualThreads );
+        scanner.accept( ScanBenchmark.qualifiedTypeVisitor( bh ) );
+    }
+
+    private static ExecutorService newVirtualExecutor()
+    {
+        try
+        {
+            return (ExecutorService) Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" ).invoke( null );
+        }
+        catch ( final Exception e )
+        {
+            return Executors.newFixedThreadPool( Runtime.getRuntime().availableProcessors() ); // before Java 21
+        }
+    }
+
+    private static byte[] readFully( final InputStream in )
+        throws IOException
+    {
+        try
+        {
+            final byte[] buf = new byte[8192];
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            for ( int n; ( n = in.read( buf ) ) > 0; )
+            {
+                bytes.write( buf, 0, n );
+            }
+            return bytes.toByteArray();
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+}
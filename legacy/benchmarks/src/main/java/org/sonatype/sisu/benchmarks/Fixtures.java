@@ -0,0 +1,86 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.sisu.benchmarks;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.eclipse.sisu.inject.DefaultRankingFunction;
+import org.eclipse.sisu.inject.InjectorBindings;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Scopes;
+import com.google.inject.name.Names;
+
+public final class Fixtures
+{
+    public interface Bean
+    {
+    }
+
+    public static final class BeanImpl
+        implements Bean
+    {
+    }
+
+    public static final class Target
+    {
+        @Inject
+        Bean bean;
+
+        @Inject
+        @Named( "bean0" )
+        Bean namedBean;
+    }
+
+    private Fixtures()
+    {
+    }
+
+    public static Injector injector( final int beans )
+    {
+        return Guice.createInjector( new AbstractModule()
+        {
+            @Override
+            protected void configure()
+            {
+                bind( Bean.class ).to( BeanImpl.class ).in( Scopes.SINGLETON );
+                for ( int i = 0; i < beans; i++ )
+                {
+                    bind( Bean.class ).annotatedWith( Names.named( "bean" + i ) ).to( BeanImpl.class );
+                }
+            }
+        } );
+    }
+
+    public static org.eclipse.sisu.inject.MutableBeanLocator eclipseLocator( final Injector... injectors )
+    {
+        final org.eclipse.sisu.inject.MutableBeanLocator locator = new org.eclipse.sisu.inject.DefaultBeanLocator();
+        for ( final Injector injector : injectors )
+        {
+            locator.add( new InjectorBindings( injector, new DefaultRankingFunction( 0 ) ) );
+        }
+        return locator;
+    }
+
+    public static org.sonatype.guice.bean.locators.MutableBeanLocator legacyLocator( final Injector... injectors )
+    {
+        final org.sonatype.guice.bean.locators.MutableBeanLocator locator =
+            new org.sonatype.guice.bean.locators.DefaultBeanLocator();
+        for ( final Injector injector : injectors )
+        {
+            locator.add( injector, 0 );
+        }
+        return locator;
+    }
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.sisu.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.sisu.inject.BeanLocator;
+import org.eclipse.sisu.wire.WireModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonatype.guice.bean.containers.SisuGuice;
+import org.sonatype.inject.Sisu;
+import org.sonatype.sisu.benchmarks.Fixtures.Target;
+
+import com.google.inject.Binder;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Module;
+import com.google.inject.util.Providers;
+
+/**
+ * Compares {@link Sisu#inject} with wiring the same object directly against an Eclipse/Sisu locator; the
+ * {@code reusePlans} parameter toggles {@link SisuGuice#setReuseInjectionPlans}.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class InjectBenchmark
+{
+    @Param( { "false", "true" } )
+    boolean reusePlans;
+
+    BeanLocator locator;
+
+    Injector wiredInjector;
+
+    @Setup
+    public void setUp()
+    {
+        locator = Fixtures.eclipseLocator( Fixtures.injector( 10 ) );
+        SisuGuice.setBeanLocator( locator );
+        SisuGuice.setReuseInjectionPlans( reusePlans );
+
+        wiredInjector = Guice.createInjector( new WireModule( new Module()
+        {
+            public void configure( final Binder binder )
+            {
+                binder.bind( BeanLocator.class ).toProvider( Providers.of( locator ) );
+                binder.requestInjection( new Target() );
+            }
+        } ) );
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        SisuGuice.setBeanLocator( null );
+        SisuGuice.setReuseInjectionPlans( false );
+    }
+
+    @Benchmark
+    public Object sisuInject()
+    {
+        final Target target = new Target();
+        Sisu.inject( target );
+        return target;
+    }
+
+    @Benchmark
+    public Object eclipseWireInject()
+    {
+        final Target target = new Target();
+        Guice.createInjector( new WireModule( new Module()
+        {
+            public void configure( final Binder binder )
+            {
+                binder.bind( BeanLocator.class ).toProvider( Providers.of( locator ) );
+                binder.requestInjection( target );
+            }
+        } ) );
+        return target;
+    }
+
+    @Benchmark
+    public Object eclipseInjectMembers()
+    {
+        final Target target = new Target();
+        wiredInjector.injectMembers( target );
+        return target;
+    }
+}
@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.sisu.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonatype.inject.BeanEntry;
+import org.sonatype.sisu.benchmarks.Fixtures.Bean;
+
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.name.Named;
+
+/**
+ * Compares {@link org.sonatype.guice.bean.locators.DefaultBeanLocator#locate} with the Eclipse/Sisu locator.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class LocateBenchmark
+{
+    private static final Key<Bean> KEY = Key.get( Bean.class, Named.class );
+
+    @Param( { "1", "10", "100" } )
+    int beans;
+
+    org.sonatype.guice.bean.locators.BeanLocator legacyLocator;
+
+    org.eclipse.sisu.inject.BeanLocator eclipseLocator;
+
+    @Setup
+    public void setUp()
+    {
+        final Injector injector = Fixtures.injector( beans );
+
+        legacyLocator = Fixtures.legacyLocator( injector );
+        eclipseLocator = Fixtures.eclipseLocator( injector );
+    }
+
+    @Benchmark
+    public void legacyLocate( final Blackhole bh )
+    {
+        for ( final BeanEntry<Named, Bean> entry : legacyLocator.<Named, Bean> locate( KEY ) )
+        {
+            bh.consume( entry.getKey() );
+        }
+    }
+
+    @Benchmark
+    public void eclipseLocate( final Blackhole bh )
+    {
+        for ( final org.eclipse.sisu.BeanEntry<Named, Bean> entry : eclipseLocator.<Named, Bean> locate( KEY ) )
+        {
+            bh.consume( entry.getKey() );
+        }
+    }
+}
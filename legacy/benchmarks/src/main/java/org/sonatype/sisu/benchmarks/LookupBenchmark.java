@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.sisu.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sonatype.guice.bean.containers.SisuGuice;
+import org.sonatype.inject.Sisu;
+import org.sonatype.sisu.benchmarks.Fixtures.Bean;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.name.Names;
+
+/**
+ * Compares {@link SisuGuice#lookup}, {@link Sisu#lookup} and {@link SisuGuice#enhance} injectors with taking the
+ * first Eclipse/Sisu entry.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class LookupBenchmark
+{
+    private static final Key<Bean> KEY = Key.get( Bean.class, Names.named( "bean0" ) );
+
+    org.eclipse.sisu.inject.BeanLocator locator;
+
+    Injector injector;
+
+    Injector enhancedInjector;
+
+    @Setup
+    public void setUp()
+    {
+        injector = Fixtures.injector( 10 );
+        locator = Fixtures.eclipseLocator( injector );
+        SisuGuice.setBeanLocator( locator );
+
+        enhancedInjector = SisuGuice.enhance( Guice.createInjector( new AbstractModule()
+        {
+            @Override
+            protected void configure()
+            {
+                bind( org.eclipse.sisu.inject.BeanLocator.class ).toInstance( locator );
+            }
+        } ) );
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        SisuGuice.setBeanLocator( null );
+    }
+
+    @Benchmark
+    public Object sisuGuiceLookup()
+    {
+        return SisuGuice.lookup( KEY );
+    }
+
+    @Benchmark
+    public Object sisuLookup()
+    {
+        return Sisu.lookup( Bean.class, "bean0" );
+    }
+
+    @Benchmark
+    public Object eclipseLookup()
+    {
+        return locator.locate( KEY ).iterator().next().getValue();
+    }
+
+    @Benchmark
+    public Object injectorGetInstance()
+    {
+        return injector.getInstance( KEY );
+    }
+
+    @Benchmark
+    public Object enhancedGetInstance()
+    {
+        return enhancedInjector.getInstance( KEY );
+    }
+}
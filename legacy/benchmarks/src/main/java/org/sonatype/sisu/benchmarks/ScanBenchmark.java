@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.sisu.benchmarks;
+
+import java.lang.annotation.Annotation;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.sisu.space.SpaceScanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonatype.guice.bean.reflect.ClassSpace;
+import org.sonatype.guice.bean.reflect.URLClassSpace;
+import org.sonatype.guice.bean.scanners.ClassSpaceScanner;
+import org.sonatype.guice.bean.scanners.ClassSpaceVisitor;
+import org.sonatype.guice.bean.scanners.QualifiedTypeListener;
+import org.sonatype.guice.bean.scanners.QualifiedTypeVisitor;
+import org.sonatype.guice.bean.scanners.asm.ClassVisitor;
+
+import com.google.inject.Injector;
+
+/**
+ * Compares the {@link ClassSpaceScanner} adapter chain, sequential and parallel, with and without the annotation
+ * prefilter, against the Eclipse/Sisu scanner over the same jars.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class ScanBenchmark
+{
+    ClassSpace space;
+
+    @Setup
+    public void setUp()
+    {
+        final URL[] path = { codeSource( Injector.class ), codeSource( ClassSpaceScanner.class ) };
+        space = new URLClassSpace( ScanBenchmark.class.getClassLoader(), path );
+    }
+
+    @Benchmark
+    public void legacyScan( final Blackhole bh )
+    {
+        new ClassSpaceScanner( space ).accept( qualifiedTypeVisitor( bh ) );
+    }
+
+    @Benchmark
+    public void legacyUnfilteredScan( final Blackhole bh )
+    {
+        // hides the visitor's AnnotatedTypeVisitor marker, so every class is fully parsed
+        final QualifiedTypeVisitor visitor = qualifiedTypeVisitor( bh );
+        new ClassSpaceScanner( space ).accept( new ClassSpaceVisitor()
+        {
+            public void visit( final ClassSpace _space )
+            {
+                visitor.visit( _space );
+            }
+
+            public ClassVisitor visitClass( final URL url )
+            {
+                return visitor.visitClass( url );
+            }
+
+            public void visitEnd()
+            {
+                visitor.visitEnd();
+            }
+        } );
+    }
+
+    @Benchmark
+    public void legacyParallelScan( final Blackhole bh )
+    {
+        final ClassSpaceScanner scanner = new ClassSpaceScanner( space );
+        scanner.setParallelism( Runtime.getRuntime().availableProcessors() );
+        scanner.accept( qualifiedTypeVisitor( bh ) );
+    }
+
+    @Benchmark
+    public void eclipseScan( final Blackhole bh )
+    {
+        final org.eclipse.sisu.space.QualifiedTypeListener listener = new org.eclipse.sisu.space.QualifiedTypeListener()
+        {
+            public void hear( final Class<?> qualifiedType, final Object source )
+            {
+                bh.consume( qualifiedType );
+            }
+        };
+        new SpaceScanner( space ).accept( new org.eclipse.sisu.space.QualifiedTypeVisitor( listener ) );
+    }
+
+    static QualifiedTypeVisitor qualifiedTypeVisitor( final Blackhole bh )
+    {
+        return new QualifiedTypeVisitor( new QualifiedTypeListener()
+        {
+            public void hear( final Annotation qualifier, final Class<?> qualifiedType, final Object source )
+            {
+                bh.consume( qualifiedType );
+            }
+        } );
+    }
+
+    static URL codeSource( final Class<?> clazz )
+    {
+        return clazz.getProtectionDomain().getCodeSource().getLocation();
+    }
+}
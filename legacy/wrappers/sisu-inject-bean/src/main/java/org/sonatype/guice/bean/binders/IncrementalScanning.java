@@ -0,0 +1,341 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.bean.binders;
+
+import java.io.File;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.eclipse.sisu.inject.BindingPublisher;
+import org.eclipse.sisu.inject.DeferredClass;
+import org.eclipse.sisu.inject.InjectorBindings;
+import org.eclipse.sisu.inject.Logs;
+import org.sonatype.guice.bean.locators.DefaultBeanLocator;
+import org.sonatype.guice.bean.locators.MutableBeanLocator;
+import org.sonatype.guice.bean.reflect.ClassSpace;
+import org.sonatype.guice.bean.reflect.URLClassSpace;
+
+import com.google.inject.Binder;
+import com.google.inject.Guice;
+import com.google.inject.Module;
+import com.google.inject.util.Providers;
+
+@Deprecated
+public final class IncrementalScanning
+{
+    private final MutableBeanLocator locator;
+
+    private final SpaceModuleFactory factory;
+
+    private final Module[] bindings;
+
+    private final Map<String, ScannedURL> scanned = new HashMap<String, ScannedURL>();
+
+    private BindingPublisher sharedBindings;
+
+    private ClassLoader scannedLoader;
+
+    public IncrementalScanning( final MutableBeanLocator locator, final SpaceModuleFactory factory,
+                                final Module... bindings )
+    {
+        this.locator = locator;
+        this.factory = factory;
+        this.bindings = bindings.clone();
+    }
+
+    public Delta rescan( final ClassLoader loader )
+    {
+        return rescan( loader, new URLClassSpace( loader ).getURLs() );
+    }
+
+    public synchronized Delta rescan( final ClassLoader loader, final URL[] path )
+    {
+        final List<BindingPublisher> added = new ArrayList<BindingPublisher>();
+        final List<BindingPublisher> removed = new ArrayList<BindingPublisher>();
+        final List<URL> changed = new ArrayList<URL>();
+
+        // explicit bindings are published once and reach scanned beans through the shared locator
+        final boolean publishShared = null == sharedBindings && bindings.length > 0;
+        final BindingPublisher shared = publishShared ? shared() : sharedBindings;
+        if ( publishShared )
+        {
+            added.add( shared );
+        }
+
+        // scans from another loader would see different copies of the types they share, so republish everything
+        final Map<String, ScannedURL> previous = new HashMap<String, ScannedURL>( scanned );
+        final boolean reuse = loader == scannedLoader;
+        final Map<String, ScannedURL> current = new HashMap<String, ScannedURL>();
+
+        for ( final URL url : path )
+        {
+            final String key = url.toString();
+            if ( current.containsKey( key ) )
+            {
+                continue; // duplicate class path entry
+            }
+            final long fingerprint = fingerprint( url );
+            final ScannedURL oldScan = previous.remove( key );
+            if ( reuse && null != oldScan && oldScan.fingerprint == fingerprint )
+            {
+                current.put( key, oldScan );
+                continue;
+            }
+
+            final BindingPublisher publisher = publisher( new URLEntrySpace( loader, url ) );
+            current.put( key, new ScannedURL( fingerprint, publisher ) );
+            if ( null != oldScan )
+            {
+                removed.add( oldScan.publisher );
+            }
+            added.add( publisher );
+            changed.add( url );
+        }
+
+        for ( final ScannedURL oldScan : previous.values() )
+        {
+            removed.add( oldScan.publisher ); // no longer on the class path
+        }
+
+        // only replace the last scan once this one has succeeded
+        scanned.clear();
+        scanned.putAll( current );
+        scannedLoader = loader;
+        sharedBindings = shared;
+
+        return new Delta( locator, added, removed, changed );
+    }
+
+    public interface SpaceModuleFactory
+    {
+        Module create( ClassSpace space );
+    }
+
+    public static final class Delta
+    {
+        private final MutableBeanLocator locator;
+
+        private final List<BindingPublisher> added;
+
+        private final List<BindingPublisher> removed;
+
+        private final List<URL> changed;
+
+        Delta( final MutableBeanLocator locator, final List<BindingPublisher> added,
+               final List<BindingPublisher> removed, final List<URL> changed )
+        {
+            this.locator = locator;
+            this.added = Collections.unmodifiableList( added );
+            this.removed = Collections.unmodifiableList( removed );
+            this.changed = Collections.unmodifiableList( changed );
+        }
+
+        public List<BindingPublisher> getAdded()
+        {
+            return added;
+        }
+
+        public List<BindingPublisher> getRemoved()
+        {
+            return removed;
+        }
+
+        public List<URL> getChangedURLs()
+        {
+            return changed;
+        }
+
+        public boolean isEmpty()
+        {
+            return added.isEmpty() && removed.isEmpty();
+        }
+
+        public void apply()
+        {
+            // publish replacements first so watchers never see an empty window
+            if ( locator instanceof DefaultBeanLocator )
+            {
+                ( (DefaultBeanLocator) locator ).addAll( added );
+                ( (DefaultBeanLocator) locator ).removeAll( removed );
+            }
+            else
+            {
+                for ( final BindingPublisher publisher : added )
+                {
+                    locator.add( publisher );
+                }
+                for ( final BindingPublisher publisher : removed )
+                {
+                    locator.remove( publisher );
+                }
+            }
+        }
+    }
+
+    private BindingPublisher shared()
+    {
+        final List<Module> modules = new ArrayList<Module>( Arrays.asList( bindings ) );
+        modules.add( locatorModule() );
+        return new InjectorBindings( Guice.createInjector( new WireModule( modules ) ) );
+    }
+
+    private BindingPublisher publisher( final ClassSpace space )
+    {
+        final Module spaceModule = factory.create( space );
+        return new InjectorBindings( Guice.createInjector( new WireModule( locatorModule(), spaceModule ) ) );
+    }
+
+    private Module locatorModule()
+    {
+        return new Module()
+        {
+            public void configure( final Binder binder )
+            {
+                // share the running locator without triggering its auto-publishing, the delta does that
+                binder.bind( org.eclipse.sisu.inject.MutableBeanLocator.class ).toProvider( Providers.of( locator ) );
+            }
+        };
+    }
+
+    private static long fingerprint( final URL url )
+    {
+        if ( !"file".equals( url.getProtocol() ) )
+        {
+            return 0; // assume remote content is stable
+        }
+        try
+        {
+            final File file = new File( url.toURI() );
+            return file.isDirectory() ? fingerprintTree( file, 0 ) : mix( file.lastModified(), file.length() );
+        }
+        catch ( final Exception e )
+        {
+            Logs.trace( "Cannot fingerprint: {} cause: {}", url, e );
+            return 0;
+        }
+    }
+
+    private static long fingerprintTree( final File dir, final long fingerprint )
+    {
+        long result = mix( fingerprint, dir.lastModified() );
+        final File[] files = dir.listFiles();
+        if ( null != files )
+        {
+            for ( final File f : files )
+            {
+                result = f.isDirectory() ? fingerprintTree( f, result ) : mix( result, f.lastModified() ^ f.length() );
+            }
+        }
+        return result;
+    }
+
+    private static long mix( final long hash, final long value )
+    {
+        return 31 * hash + value;
+    }
+
+    private static final class ScannedURL
+    {
+        final long fingerprint;
+
+        final BindingPublisher publisher;
+
+        ScannedURL( final long fingerprint, final BindingPublisher publisher )
+        {
+            this.fingerprint = fingerprint;
+            this.publisher = publisher;
+        }
+    }
+
+    static final class URLEntrySpace
+        implements ClassSpace
+    {
+        private final org.eclipse.sisu.space.ClassSpace space;
+
+        private final String[] prefixes;
+
+        URLEntrySpace( final ClassLoader loader, final URL url )
+        {
+            space = new URLClassSpace( loader, new URL[] { url } );
+
+            // only report entries from this URL, not the jars named in its manifest Class-Path
+            final String location = url.toString();
+            prefixes = new String[] { location, "jar:" + location + "!/" };
+        }
+
+        public Class<?> loadClass( final String name )
+        {
+            return space.loadClass( name );
+        }
+
+        public DeferredClass<?> deferLoadClass( final String name )
+        {
+            return space.deferLoadClass( name );
+        }
+
+        public URL getResource( final String name )
+        {
+            return space.getResource( name );
+        }
+
+        public Enumeration<URL> getResources( final String name )
+        {
+            return space.getResources( name );
+        }
+
+        public Enumeration<URL> findEntries( final String path, final String glob, final boolean recurse )
+        {
+            final Enumeration<URL> entries = space.findEntries( path, glob, recurse );
+            return new Enumeration<URL>()
+            {
+                private URL next;
+
+                public boolean hasMoreElements()
+                {
+                    while ( null == next && entries.hasMoreElements() )
+                    {
+                        final URL entry = entries.nextElement();
+                        final String location = entry.toString();
+                        if ( location.startsWith( prefixes[0] ) || location.startsWith( prefixes[1] ) )
+                        {
+                            next = entry;
+                        }
+                    }
+                    return null != next;
+                }
+
+                public URL nextElement()
+                {
+                    if ( hasMoreElements() )
+                    {
+                        final URL entry = next;
+                        next = null;
+                        return entry;
+                    }
+                    throw new NoSuchElementException();
+                }
+            };
+        }
+
+        @Override
+        public String toString()
+        {
+            return space.toString();
+        }
+    }
+}
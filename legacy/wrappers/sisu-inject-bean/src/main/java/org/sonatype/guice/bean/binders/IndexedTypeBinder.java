@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.bean.binders;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.eclipse.sisu.inject.Logs;
+import org.eclipse.sisu.space.ClassFinder;
+import org.sonatype.guice.bean.reflect.ClassSpace;
+import org.sonatype.guice.bean.scanners.index.BinaryIndex;
+
+import com.google.inject.Binder;
+
+// binds entries from binary indexes exactly like scanned types, without reading their bytecode first
+@Deprecated
+final class IndexedTypeBinder
+{
+    private static final String INDEX_FOLDER = "META-INF/sisu/";
+
+    private final ClassSpace space;
+
+    private final List<BinaryIndex> indexes = new ArrayList<BinaryIndex>();
+
+    private final List<String> sources = new ArrayList<String>();
+
+    private final Set<String> indexedPaths = new HashSet<String>();
+
+    IndexedTypeBinder( final ClassSpace space )
+    {
+        this.space = space;
+
+        final Enumeration<URL> e = space.findEntries( INDEX_FOLDER, BinaryIndex.NAME, false );
+        while ( e.hasMoreElements() )
+        {
+            final URL url = e.nextElement();
+            try
+            {
+                final BinaryIndex index = BinaryIndex.open( url );
+                for ( int i = 0, size = index.size(); i < size; i++ )
+                {
+                    indexedPaths.add( index.getClassName( i ).replace( '.', '/' ) + ".class" );
+                }
+                final String path = url.getPath();
+                indexes.add( index );
+                sources.add( path.substring( 0, path.length() - BinaryIndex.PATH.length() ) );
+            }
+            catch ( final IOException ex )
+            {
+                Logs.warn( "Problem reading: {}", url, ex );
+            }
+        }
+    }
+
+    boolean isEmpty()
+    {
+        return indexes.isEmpty();
+    }
+
+    // classes in binary indexes are bound by this binder, the rest are found from the usual text indexes
+    ClassFinder textIndexFinder()
+    {
+        return new ClassFinder()
+        {
+            public Enumeration<URL> findClasses( final org.eclipse.sisu.space.ClassSpace _space )
+            {
+                final Enumeration<URL> classes = org.eclipse.sisu.space.SpaceModule.LOCAL_INDEX.findClasses( _space );
+                return new Enumeration<URL>()
+                {
+                    private URL next;
+
+                    public boolean hasMoreElements()
+                    {
+                        while ( null == next && classes.hasMoreElements() )
+                        {
+                            final URL url = classes.nextElement();
+                            if ( !isIndexed( url ) )
+                            {
+                                next = url;
+                            }
+                        }
+                        return null != next;
+                    }
+
+                    public URL nextElement()
+                    {
+                        if ( hasMoreElements() )
+                        {
+                            final URL url = next;
+                            next = null;
+                            return url;
+                        }
+                        throw new NoSuchElementException();
+                    }
+                };
+            }
+        };
+    }
+
+    void bind( final Binder binder )
+    {
+        final org.eclipse.sisu.space.QualifiedTypeBinder typeBinder =
+            new org.eclipse.sisu.space.QualifiedTypeBinder( binder );
+
+        final Set<String> seen = new HashSet<String>();
+        for ( int n = 0; n < indexes.size(); n++ )
+        {
+            final BinaryIndex index = indexes.get( n );
+            final String source = sources.get( n );
+            for ( int i = 0, size = index.size(); i < size; i++ )
+            {
+                final String name = index.getClassName( i );
+                if ( seen.add( name ) )
+                {
+                    typeBinder.hear( space.loadClass( name ), source );
+                }
+            }
+        }
+    }
+
+    boolean isIndexed( final URL url )
+    {
+        final String location = url.toString();
+        final int i = location.lastIndexOf( "!/" );
+        if ( i >= 0 )
+        {
+            return indexedPaths.contains( location.substring( i + 2 ) );
+        }
+        for ( int j = location.indexOf( '/' ); j >= 0; j = location.indexOf( '/', j + 1 ) )
+        {
+            if ( indexedPaths.contains( location.substring( j + 1 ) ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
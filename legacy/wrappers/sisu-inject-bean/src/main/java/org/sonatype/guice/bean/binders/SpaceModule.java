@@ -10,9 +10,17 @@
  *******************************************************************************/
 package org.sonatype.guice.bean.binders;
 
+import java.io.File;
+import java.util.concurrent.Executor;
+
+import org.sonatype.guice.bean.locators.MutableBeanLocator;
 import org.sonatype.guice.bean.reflect.ClassSpace;
+import org.sonatype.guice.bean.scanners.AnnotatedTypeVisitor;
+import org.sonatype.guice.bean.scanners.AnnotationPrefilter;
 import org.sonatype.guice.bean.scanners.ClassSpaceScanner;
 import org.sonatype.guice.bean.scanners.ClassSpaceVisitor;
+import org.sonatype.guice.bean.scanners.ScanCache;
+import org.sonatype.guice.bean.scanners.ScanReport;
 import org.sonatype.inject.BeanScanning;
 
 import com.google.inject.Binder;
@@ -22,8 +30,20 @@ import com.google.inject.Module;
 public class SpaceModule
     implements Module
 {
+    private final ClassSpace space;
+
+    private final boolean indexed;
+
     private final Module delegate;
 
+    private final ScanCache scanCache;
+
+    private final org.eclipse.sisu.space.ClassFinder finder;
+
+    private Executor executor;
+
+    private ScanReport report = ScanReport.global();
+
     public SpaceModule( final ClassSpace space )
     {
         this( space, BeanScanning.ON );
@@ -34,12 +54,79 @@ public class SpaceModule
         final org.eclipse.sisu.space.BeanScanning _scanning =
             org.eclipse.sisu.space.BeanScanning.valueOf( scanning.name() );
 
+        this.space = space;
+        indexed = BeanScanning.INDEX == scanning;
+
+        final File cacheDir = BeanScanning.CACHE == scanning ? ScanCache.directory() : null;
+        scanCache = null != cacheDir ? new ScanCache( cacheDir ) : null;
+
         delegate = new org.eclipse.sisu.space.SpaceModule( space, _scanning ).with( new LegacyStrategy() );
+
+        // cached scans replay recorded elements, so only plain scans and index lookups can use an executor
+        switch ( scanning )
+        {
+            case ON:
+                finder = org.eclipse.sisu.space.SpaceModule.LOCAL_SCAN;
+                break;
+            case INDEX:
+                finder = org.eclipse.sisu.space.SpaceModule.LOCAL_INDEX;
+                break;
+            case GLOBAL_INDEX:
+                finder = org.eclipse.sisu.space.SpaceModule.GLOBAL_INDEX;
+                break;
+            default:
+                finder = null;
+                break;
+        }
+    }
+
+    public static IncrementalScanning incremental( final MutableBeanLocator locator, final Module... bindings )
+    {
+        return new IncrementalScanning( locator, new IncrementalScanning.SpaceModuleFactory()
+        {
+            public Module create( final ClassSpace space )
+            {
+                return new SpaceModule( space );
+            }
+        }, bindings );
+    }
+
+    public SpaceModule with( final ScanReport _report )
+    {
+        report = _report;
+        return this;
+    }
+
+    // classes are read on the executor, visitor callbacks still happen on the configuring thread
+    public SpaceModule with( final Executor _executor )
+    {
+        executor = _executor;
+        return this;
     }
 
     public void configure( final Binder binder )
     {
-        delegate.configure( binder );
+        // custom visitors expect to see every indexed class, so only use binary indexes for the default strategy
+        if ( indexed && SpaceModule.class == getClass() )
+        {
+            final IndexedTypeBinder indexBinder = new IndexedTypeBinder( space );
+            if ( !indexBinder.isEmpty() )
+            {
+                final org.eclipse.sisu.space.ClassFinder textFinder = indexBinder.textIndexFinder();
+                if ( !scanWithExecutor( binder, textFinder ) )
+                {
+                    final org.eclipse.sisu.space.SpaceModule textModule =
+                        new org.eclipse.sisu.space.SpaceModule( space, textFinder );
+                    textModule.with( new LegacyStrategy() ).configure( binder );
+                }
+                indexBinder.bind( binder );
+                return;
+            }
+        }
+        if ( null == finder || !scanWithExecutor( binder, finder ) )
+        {
+            delegate.configure( binder );
+        }
     }
 
     protected ClassSpaceVisitor visitor( @SuppressWarnings( "unused" ) final Binder binder )
@@ -47,13 +134,53 @@ public class SpaceModule
         return null;
     }
 
+    private boolean scanWithExecutor( final Binder binder, final org.eclipse.sisu.space.ClassFinder classFinder )
+    {
+        if ( null == executor && !ClassSpaceScanner.isParallelByDefault() )
+        {
+            return false;
+        }
+
+        binder.bind( org.eclipse.sisu.space.ClassSpace.class ).toInstance( space );
+
+        final ClassSpaceVisitor v = visitor( binder );
+        ClassSpaceScanner.accept( space, classFinder, spaceVisitor( binder, v ), executor, isAnnotated( v ), report );
+
+        return true;
+    }
+
+    org.eclipse.sisu.space.SpaceVisitor spaceVisitor( final Binder binder, final ClassSpaceVisitor v )
+    {
+        if ( null != v )
+        {
+            return ClassSpaceScanner.adapt( v );
+        }
+        return org.eclipse.sisu.space.SpaceModule.Strategy.DEFAULT.visitor( binder );
+    }
+
+    static boolean isAnnotated( final ClassSpaceVisitor v )
+    {
+        return null == v || v instanceof AnnotatedTypeVisitor;
+    }
+
     final class LegacyStrategy
         implements org.eclipse.sisu.space.SpaceModule.Strategy
     {
         public org.eclipse.sisu.space.SpaceVisitor visitor( final Binder binder )
         {
             final ClassSpaceVisitor v = SpaceModule.this.visitor( binder );
-            return null != v ? ClassSpaceScanner.adapt( v ) : DEFAULT.visitor( binder );
+            final org.eclipse.sisu.space.SpaceVisitor visitor = spaceVisitor( binder, v );
+            if ( null != scanCache )
+            {
+                // cached results already avoid parsing
+                return null != report ? report.wrap( scanCache.wrap( visitor ), false ) : scanCache.wrap( visitor );
+            }
+            final boolean prefilter = isAnnotated( v );
+            if ( null != report )
+            {
+                return report.wrap( visitor, prefilter );
+            }
+            return prefilter ? AnnotationPrefilter.wrap( visitor ) : visitor;
         }
     }
 }
@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.bean.containers;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.sisu.inject.BeanLocator;
+
+import com.google.inject.Binding;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.MembersInjector;
+import com.google.inject.Module;
+import com.google.inject.Provider;
+import com.google.inject.Scope;
+import com.google.inject.TypeLiteral;
+import com.google.inject.spi.TypeConverterBinding;
+
+@Deprecated
+final class EnhancedInjector
+    implements Injector
+{
+    private static final Class<?>[] API = { Injector.class };
+
+    private static final boolean COMPLETE = implementsAll( API[0] );
+
+    private final Injector injector;
+
+    private volatile LookupCache cache;
+
+    private EnhancedInjector( final Injector injector )
+    {
+        this.injector = injector;
+    }
+
+    static Injector enhance( final Injector injector )
+    {
+        final EnhancedInjector enhancedInjector = new EnhancedInjector( injector );
+        if ( COMPLETE )
+        {
+            return enhancedInjector;
+        }
+        // a later Guice release added Injector methods, so route those to the original injector
+        return (Injector) Proxy.newProxyInstance( API[0].getClassLoader(), API, new InvocationHandler()
+        {
+            public Object invoke( final Object proxy, final Method method, final Object[] args )
+                throws Throwable
+            {
+                try
+                {
+                    final boolean known = !Modifier.isAbstract( implementation( method ).getModifiers() );
+                    return method.invoke( known ? enhancedInjector : injector, args );
+                }
+                catch ( final InvocationTargetException e )
+                {
+                    throw e.getTargetException();
+                }
+            }
+        } );
+    }
+
+    public <T> T getInstance( final Key<T> key )
+    {
+        return lookupCache().lookup( key );
+    }
+
+    public <T> T getInstance( final Class<T> type )
+    {
+        return lookupCache().lookup( type );
+    }
+
+    public void injectMembers( final Object instance )
+    {
+        lookupCache().plans.injectMembers( instance );
+    }
+
+    public <T> MembersInjector<T> getMembersInjector( final TypeLiteral<T> typeLiteral )
+    {
+        return injector.getMembersInjector( typeLiteral );
+    }
+
+    public <T> MembersInjector<T> getMembersInjector( final Class<T> type )
+    {
+        return injector.getMembersInjector( type );
+    }
+
+    public Map<Key<?>, Binding<?>> getBindings()
+    {
+        return injector.getBindings();
+    }
+
+    public Map<Key<?>, Binding<?>> getAllBindings()
+    {
+        return injector.getAllBindings();
+    }
+
+    public <T> Binding<T> getBinding( final Key<T> key )
+    {
+        return injector.getBinding( key );
+    }
+
+    public <T> Binding<T> getBinding( final Class<T> type )
+    {
+        return injector.getBinding( type );
+    }
+
+    public <T> Binding<T> getExistingBinding( final Key<T> key )
+    {
+        return injector.getExistingBinding( key );
+    }
+
+    public <T> List<Binding<T>> findBindingsByType( final TypeLiteral<T> type )
+    {
+        return injector.findBindingsByType( type );
+    }
+
+    public <T> Provider<T> getProvider( final Key<T> key )
+    {
+        return injector.getProvider( key );
+    }
+
+    public <T> Provider<T> getProvider( final Class<T> type )
+    {
+        return injector.getProvider( type );
+    }
+
+    public Injector getParent()
+    {
+        return injector.getParent();
+    }
+
+    public Injector createChildInjector( final Iterable<? extends Module> modules )
+    {
+        return injector.createChildInjector( modules );
+    }
+
+    public Injector createChildInjector( final Module... modules )
+    {
+        return injector.createChildInjector( modules );
+    }
+
+    public Map<Class<? extends Annotation>, Scope> getScopeBindings()
+    {
+        return injector.getScopeBindings();
+    }
+
+    public Set<TypeConverterBinding> getTypeConverterBindings()
+    {
+        return injector.getTypeConverterBindings();
+    }
+
+    @Override
+    public String toString()
+    {
+        return injector.toString();
+    }
+
+    static boolean implementsAll( final Class<?> api )
+    {
+        for ( final Method m : api.getMethods() )
+        {
+            if ( Modifier.isAbstract( implementation( m ).getModifiers() ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Method implementation( final Method method )
+    {
+        try
+        {
+            return EnhancedInjector.class.getMethod( method.getName(), method.getParameterTypes() );
+        }
+        catch ( final NoSuchMethodException e )
+        {
+            return method;
+        }
+    }
+
+    private LookupCache lookupCache()
+    {
+        LookupCache result = cache;
+        if ( null == result )
+        {
+            synchronized ( this )
+            {
+                result = cache;
+                if ( null == result )
+                {
+                    cache = result = new LookupCache( injector.getInstance( BeanLocator.class ) );
+                }
+            }
+        }
+        return result;
+    }
+}
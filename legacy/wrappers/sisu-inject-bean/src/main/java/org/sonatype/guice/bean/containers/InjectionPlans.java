@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.bean.containers;
+
+import java.lang.ref.SoftReference;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.sisu.inject.BeanLocator;
+import org.eclipse.sisu.inject.Weak;
+import org.eclipse.sisu.wire.WireModule;
+
+import com.google.inject.Binder;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.MembersInjector;
+import com.google.inject.Module;
+import com.google.inject.Provider;
+
+@Deprecated
+final class InjectionPlans
+{
+    static volatile boolean enabled;
+
+    static
+    {
+        boolean reusePlans;
+        try
+        {
+            reusePlans = Boolean.parseBoolean( System.getProperty( "sisu.inject.plans" ) );
+        }
+        catch ( final RuntimeException e )
+        {
+            reusePlans = false;
+        }
+        enabled = reusePlans;
+    }
+
+    // weak keys so plans don't pin classes from discarded class loaders; each plan refers back to its class,
+    // so it's also held softly - otherwise the map would keep the key reachable through its own value
+    private final ConcurrentMap<Class<?>, SoftReference<MembersInjector<?>>> plans = Weak.concurrentKeys();
+
+    private final Provider<? extends BeanLocator> locator;
+
+    InjectionPlans( final Provider<? extends BeanLocator> locator )
+    {
+        this.locator = locator;
+    }
+
+    @SuppressWarnings( { "rawtypes", "unchecked" } )
+    void injectMembers( final Object that )
+    {
+        if ( !enabled )
+        {
+            wire( that );
+            return;
+        }
+        final Class<?> clazz = that.getClass();
+        final SoftReference<MembersInjector<?>> ref = plans.get( clazz );
+        final MembersInjector plan = null != ref ? ref.get() : null;
+        if ( null != plan )
+        {
+            plan.injectMembers( that );
+        }
+        else
+        {
+            // first instance is injected while creating the plan
+            final MembersInjector<?> newPlan = wire( that ).getMembersInjector( clazz );
+            plans.put( clazz, new SoftReference<MembersInjector<?>>( newPlan ) );
+        }
+    }
+
+    private Injector wire( final Object that )
+    {
+        return Guice.createInjector( new WireModule( new Module()
+        {
+            public void configure( final Binder binder )
+            {
+                binder.bind( BeanLocator.class ).toProvider( locator );
+                binder.requestInjection( that );
+            }
+        } ) );
+    }
+}
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.bean.containers;
+
+import java.lang.annotation.Annotation;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.sisu.BeanEntry;
+import org.eclipse.sisu.Mediator;
+import org.eclipse.sisu.inject.BeanLocator;
+import org.eclipse.sisu.inject.TypeArguments;
+
+import com.google.inject.Key;
+import com.google.inject.util.Providers;
+
+@Deprecated
+final class LookupCache
+{
+    private static final Invalidator INVALIDATOR = new Invalidator();
+
+    final BeanLocator locator;
+
+    final InjectionPlans plans;
+
+    private final ConcurrentMap<Object, FirstEntry> cachedEntries = new ConcurrentHashMap<Object, FirstEntry>();
+
+    LookupCache( final BeanLocator locator )
+    {
+        this.locator = locator;
+        this.plans = new InjectionPlans( Providers.of( locator ) );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    <T> T lookup( final Key<T> key )
+    {
+        final FirstEntry cached = cachedEntries.get( key );
+        return null != cached ? (T) cached.entry.getValue() : lookup( key, key );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    <T> T lookup( final Class<T> type )
+    {
+        final FirstEntry cached = cachedEntries.get( type );
+        return null != cached ? (T) cached.entry.getValue() : lookup( type, Key.get( type ) );
+    }
+
+    private <T> T lookup( final Object id, final Key<T> key )
+    {
+        final Iterator<? extends BeanEntry<?, T>> i = locator.locate( key ).iterator();
+        if ( !i.hasNext() )
+        {
+            return null; // don't cache misses, we'd need to watch every unknown key
+        }
+        if ( null == key.getAnnotationType() && TypeArguments.isImplicit( key.getTypeLiteral() ) )
+        {
+            return i.next().getValue(); // implicit bindings aren't reported to watchers
+        }
+        final BeanEntry<?, T> entry = cache( id, key );
+        return null != entry ? entry.getValue() : null;
+    }
+
+    @SuppressWarnings( { "rawtypes", "unchecked" } )
+    private synchronized <T> BeanEntry<?, T> cache( final Object id, final Key<T> key )
+    {
+        FirstEntry cached = cachedEntries.get( id );
+        if ( null == cached )
+        {
+            cached = new FirstEntry( id );
+            locator.watch( key, (Mediator) INVALIDATOR, cached );
+            cached.armed = true; // ignore the initial notifications from watch
+
+            final Iterator<? extends BeanEntry<?, T>> i = locator.locate( key ).iterator();
+            if ( !i.hasNext() )
+            {
+                return null;
+            }
+            cached.entry = i.next();
+            cachedEntries.put( id, cached );
+            if ( cached.stale )
+            {
+                cachedEntries.remove( id, cached ); // rankings changed while we were looking
+            }
+        }
+        return (BeanEntry<?, T>) cached.entry;
+    }
+
+    final class FirstEntry
+    {
+        final Object id;
+
+        volatile BeanEntry<?, ?> entry;
+
+        volatile boolean armed;
+
+        volatile boolean stale;
+
+        FirstEntry( final Object id )
+        {
+            this.id = id;
+        }
+
+        void invalidate()
+        {
+            if ( armed )
+            {
+                stale = true;
+                cachedEntries.remove( id, this );
+            }
+        }
+    }
+
+    static final class Invalidator
+        implements Mediator<Annotation, Object, FirstEntry>
+    {
+        public void add( final BeanEntry<Annotation, Object> entry, final FirstEntry watcher )
+        {
+            watcher.invalidate();
+        }
+
+        public void remove( final BeanEntry<Annotation, Object> entry, final FirstEntry watcher )
+        {
+            watcher.invalidate();
+        }
+    }
+}
@@ -10,12 +10,25 @@
  *******************************************************************************/
 package org.sonatype.guice.bean.containers;
 
+import java.util.Collections;
 import java.util.Map;
 
+import javax.inject.Inject;
+
+import org.eclipse.sisu.Parameters;
+import org.eclipse.sisu.inject.MutableBeanLocator;
+import org.eclipse.sisu.wire.ParameterKeys;
+import org.sonatype.guice.bean.binders.SpaceModule;
+import org.sonatype.guice.bean.binders.WireModule;
+import org.sonatype.guice.bean.reflect.URLClassSpace;
+import org.sonatype.guice.bean.scanners.ScanCache;
 import org.sonatype.inject.BeanScanning;
 
+import com.google.inject.Binder;
+import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.Module;
+import com.google.inject.Provides;
 
 @Deprecated
 public final class Main
@@ -27,19 +40,91 @@ public final class Main
 
     public static <T> T boot( final Class<T> type, final String... args )
     {
-        return org.eclipse.sisu.launch.Main.boot( type, args );
+        return boot( System.getProperties(), args ).getInstance( type );
     }
 
     public static Injector boot( final Map<?, ?> properties, final String... args )
     {
-        return org.eclipse.sisu.launch.Main.boot( properties, args );
+        final BeanScanning scanning =
+            BeanScanning.valueOf( org.eclipse.sisu.space.BeanScanning.select( properties ).name() );
+
+        if ( !isScanCached( scanning ) )
+        {
+            return org.eclipse.sisu.launch.Main.boot( properties, args );
+        }
+        return Guice.createInjector( wire( scanning, new BootModule( properties, args ) ) );
     }
 
     public static Module wire( final BeanScanning scanning, final Module... bindings )
     {
-        final org.eclipse.sisu.space.BeanScanning _scanning =
-            org.eclipse.sisu.space.BeanScanning.valueOf( scanning.name() );
+        if ( !isScanCached( scanning ) )
+        {
+            final org.eclipse.sisu.space.BeanScanning _scanning =
+                org.eclipse.sisu.space.BeanScanning.valueOf( scanning.name() );
+
+            return org.eclipse.sisu.launch.Main.wire( _scanning, bindings );
+        }
+
+        // route scanning through the legacy space module so it can use the persistent scan cache
+        final Module[] modules = new Module[bindings.length + 1];
+        System.arraycopy( bindings, 0, modules, 0, bindings.length );
+
+        final ClassLoader tccl = Thread.currentThread().getContextClassLoader();
+        modules[bindings.length] = new SpaceModule( URLClassSpace.indexed( tccl ), scanning );
+
+        return new WireModule( modules );
+    }
+
+    private static boolean isScanCached( final BeanScanning scanning )
+    {
+        return BeanScanning.CACHE == scanning && null != ScanCache.directory();
+    }
+
+    // mirrors the bindings of org.eclipse.sisu.launch.Main, which cannot be reused with a different space module
+    private static final class BootModule
+        implements Module
+    {
+        private final Map<?, ?> properties;
+
+        private final String[] args;
+
+        BootModule( final Map<?, ?> properties, final String... args )
+        {
+            this.properties = Collections.unmodifiableMap( properties );
+            this.args = args;
+        }
+
+        public void configure( final Binder binder )
+        {
+            binder.bind( ParameterKeys.PROPERTIES ).toInstance( properties );
+            binder.bind( ShutdownThread.class ).asEagerSingleton();
+        }
+
+        @Provides
+        @Parameters
+        String[] parameters()
+        {
+            return args.clone();
+        }
+    }
+
+    static final class ShutdownThread
+        extends Thread
+    {
+        private final MutableBeanLocator locator;
+
+        @Inject
+        ShutdownThread( final MutableBeanLocator locator )
+        {
+            this.locator = locator;
+
+            Runtime.getRuntime().addShutdownHook( this );
+        }
 
-        return org.eclipse.sisu.launch.Main.wire( _scanning, bindings );
+        @Override
+        public void run()
+        {
+            locator.clear();
+        }
     }
 }
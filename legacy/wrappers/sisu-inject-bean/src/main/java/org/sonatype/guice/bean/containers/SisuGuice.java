@@ -10,31 +10,42 @@
  *******************************************************************************/
 package org.sonatype.guice.bean.containers;
 
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
-import java.util.Iterator;
-import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.inject.Inject;
 
 import org.eclipse.sisu.inject.BeanLocator;
 import org.eclipse.sisu.inject.Logs;
-import org.eclipse.sisu.wire.WireModule;
+import org.eclipse.sisu.inject.Weak;
 
-import com.google.inject.Binder;
-import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.Key;
-import com.google.inject.Module;
-import com.google.inject.util.Providers;
 
 @Deprecated
 public final class SisuGuice
 {
-    private static final ThreadLocal<BeanLocator> LOCATOR = new InheritableThreadLocal<BeanLocator>();
+    private static final ThreadLocal<LookupCache> LOCATOR;
 
-    private static volatile BeanLocator latest;
+    static
+    {
+        boolean inherit;
+        try
+        {
+            // inheriting means every new thread copies the parent's locals, which adds up with virtual threads
+            inherit = !"false".equalsIgnoreCase( System.getProperty( "sisu.locator.inherit" ) );
+        }
+        catch ( final RuntimeException e )
+        {
+            inherit = true;
+        }
+        LOCATOR = inherit ? new InheritableThreadLocal<LookupCache>() : new ThreadLocal<LookupCache>();
+    }
+
+    // caches are only kept while something refers to them, such as a thread, a context handle or latest
+    private static final ConcurrentMap<BeanLocator, LookupCache> CACHES = Weak.concurrentValues();
+
+    private static volatile LookupCache latest;
 
     private SisuGuice()
     {
@@ -45,52 +56,40 @@ public final class SisuGuice
     {
         if ( null != locator )
         {
-            LOCATOR.set( locator );
+            final LookupCache cache = lookupCache( locator );
+            LOCATOR.set( cache );
+            latest = cache;
         }
         else
         {
             LOCATOR.remove();
+            latest = null;
         }
-        latest = locator;
     }
 
     public static BeanLocator getBeanLocator()
     {
-        final BeanLocator locator = LOCATOR.get();
-        return null != locator ? locator : latest;
+        final LookupCache cache = lookupCache();
+        return null != cache ? cache.locator : null;
     }
 
     public static <T> T lookup( final Key<T> key )
     {
-        final BeanLocator locator = getBeanLocator();
-        if ( null != locator )
+        final LookupCache cache = lookupCache();
+        if ( null != cache )
         {
-            final Iterator<? extends Entry<?, T>> i = locator.locate( key ).iterator();
-            if ( i.hasNext() )
-            {
-                return i.next().getValue();
-            }
-        }
-        else
-        {
-            Logs.trace( "No BeanLocator found for thread {}", Thread.currentThread(), null );
+            return cache.lookup( key );
         }
+        Logs.trace( "No BeanLocator found for thread {}", Thread.currentThread(), null );
         return null;
     }
 
     public static void inject( final Object that )
     {
-        final BeanLocator locator = getBeanLocator();
-        if ( null != locator )
+        final LookupCache cache = lookupCache();
+        if ( null != cache )
         {
-            Guice.createInjector( new WireModule( new Module()
-            {
-                public void configure( final Binder binder )
-                {
-                    binder.bind( BeanLocator.class ).toProvider( Providers.of( locator ) );
-                    binder.requestInjection( that );
-                }
-            } ) );
+            cache.plans.injectMembers( that );
         }
         else
         {
@@ -98,36 +97,116 @@ public final class SisuGuice
         }
     }
 
+    public static Context context()
+    {
+        final LookupCache cache = lookupCache();
+        return null != cache ? new Context( cache ) : null;
+    }
+
+    public static Context context( final BeanLocator locator )
+    {
+        return new Context( lookupCache( locator ) );
+    }
+
+    public static void setReuseInjectionPlans( final boolean reuse )
+    {
+        InjectionPlans.enabled = reuse;
+    }
+
     public static Injector enhance( final Injector injector )
     {
-        final Class<?>[] api = { Injector.class };
-        return (Injector) Proxy.newProxyInstance( api[0].getClassLoader(), api, new InvocationHandler()
+        return EnhancedInjector.enhance( injector );
+    }
+
+    private static LookupCache lookupCache()
+    {
+        final LookupCache cache = LOCATOR.get();
+        return null != cache ? cache : latest;
+    }
+
+    private static LookupCache lookupCache( final BeanLocator locator )
+    {
+        final LookupCache latestCache = latest;
+        if ( null != latestCache && latestCache.locator == locator )
         {
-            @SuppressWarnings( { "rawtypes", "unchecked" } )
-            public Object invoke( final Object proxy, final Method method, final Object[] args )
-                throws Throwable
+            return latestCache;
+        }
+        LookupCache cache = CACHES.get( locator );
+        if ( null == cache )
+        {
+            cache = new LookupCache( locator );
+            final LookupCache oldCache = CACHES.putIfAbsent( locator, cache );
+            if ( null != oldCache )
             {
-                final String methodName = method.getName();
-                if ( "getInstance".equals( methodName ) )
-                {
-                    final Key key = args[0] instanceof Key ? (Key) args[0] : Key.get( (Class) args[0] );
-                    final Iterator<Entry> i = injector.getInstance( BeanLocator.class ).locate( key ).iterator();
-                    return i.hasNext() ? i.next().getValue() : null;
-                }
-                if ( "injectMembers".equals( methodName ) )
-                {
-                    Guice.createInjector( new WireModule( new Module()
-                    {
-                        public void configure( final Binder binder )
-                        {
-                            binder.bind( BeanLocator.class ).toProvider( injector.getProvider( BeanLocator.class ) );
-                            binder.requestInjection( args[0] );
-                        }
-                    } ) );
-                    return null;
-                }
-                return method.invoke( injector, args );
+                cache = oldCache;
             }
-        } );
+        }
+        return cache;
+    }
+
+    public static final class Context
+    {
+        final LookupCache cache;
+
+        Context( final LookupCache cache )
+        {
+            this.cache = cache;
+        }
+
+        public BeanLocator getBeanLocator()
+        {
+            return cache.locator;
+        }
+
+        public <T> T lookup( final Key<T> key )
+        {
+            return cache.lookup( key );
+        }
+
+        public void inject( final Object that )
+        {
+            cache.plans.injectMembers( that );
+        }
+
+        public void run( final Runnable task )
+        {
+            final LookupCache oldCache = LOCATOR.get();
+            LOCATOR.set( cache );
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                restore( oldCache );
+            }
+        }
+
+        public <V> V call( final Callable<V> task )
+            throws Exception
+        {
+            final LookupCache oldCache = LOCATOR.get();
+            LOCATOR.set( cache );
+            try
+            {
+                return task.call();
+            }
+            finally
+            {
+                restore( oldCache );
+            }
+        }
+
+        private static void restore( final LookupCache oldCache )
+        {
+            if ( null != oldCache )
+            {
+                LOCATOR.set( oldCache );
+            }
+            else
+            {
+                LOCATOR.remove();
+            }
+        }
     }
 }
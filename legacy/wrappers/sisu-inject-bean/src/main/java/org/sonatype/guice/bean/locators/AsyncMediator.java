@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.bean.locators;
+
+import java.lang.annotation.Annotation;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.sisu.BeanEntry;
+import org.eclipse.sisu.Mediator;
+import org.eclipse.sisu.inject.Logs;
+
+@Deprecated
+final class AsyncMediator<Q extends Annotation, T, W>
+    implements Mediator<Q, T, W>
+{
+    private final Mediator<Q, T, W> mediator;
+
+    private final SerialQueue queue;
+
+    AsyncMediator( final Mediator<Q, T, W> mediator, final SerialQueue queue )
+    {
+        this.mediator = mediator;
+        this.queue = queue;
+    }
+
+    public void add( final BeanEntry<Q, T> entry, final W watcher )
+    {
+        queue.execute( new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    mediator.add( entry, watcher );
+                }
+                catch ( final Throwable e ) // NOPMD see Logs.catchThrowable
+                {
+                    Logs.catchThrowable( e );
+                    Logs.warn( "Problem adding: <> to: " + Logs.identityToString( watcher ), entry, e );
+                }
+            }
+        } );
+    }
+
+    public void remove( final BeanEntry<Q, T> entry, final W watcher )
+    {
+        queue.execute( new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    mediator.remove( entry, watcher );
+                }
+                catch ( final Throwable e ) // NOPMD see Logs.catchThrowable
+                {
+                    Logs.catchThrowable( e );
+                    Logs.warn( "Problem removing: <> from: " + Logs.identityToString( watcher ), entry, e );
+                }
+            }
+        } );
+    }
+
+    static final class SerialQueue
+        implements Runnable
+    {
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private volatile Executor executor;
+
+        SerialQueue( final Executor executor )
+        {
+            this.executor = executor;
+        }
+
+        void execute( final Runnable task )
+        {
+            tasks.add( task );
+            schedule();
+        }
+
+        // later tasks go to the new executor; a null executor delivers them on the caller's thread
+        void rebind( final Executor newExecutor )
+        {
+            if ( executor != newExecutor )
+            {
+                executor = newExecutor;
+                if ( !tasks.isEmpty() )
+                {
+                    // don't wait for a drain that may never run on the old executor
+                    submit( newExecutor );
+                }
+            }
+        }
+
+        public synchronized void run() // serialises drains, even when queued on more than one executor
+        {
+            Runnable task;
+            while ( null != ( task = tasks.poll() ) )
+            {
+                task.run();
+            }
+            scheduled.set( false );
+            if ( !tasks.isEmpty() )
+            {
+                schedule(); // task arrived after we finished draining
+            }
+        }
+
+        private void schedule()
+        {
+            if ( scheduled.compareAndSet( false, true ) )
+            {
+                submit( executor );
+            }
+        }
+
+        private void submit( final Executor target )
+        {
+            if ( null == target )
+            {
+                run();
+                return;
+            }
+            try
+            {
+                target.execute( this );
+            }
+            catch ( final RejectedExecutionException e )
+            {
+                run(); // executor is shutting down, so deliver on the caller's thread
+            }
+        }
+    }
+}
@@ -11,6 +11,11 @@
 package org.sonatype.guice.bean.locators;
 
 import java.lang.annotation.Annotation;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 
 import javax.inject.Inject;
 
@@ -18,6 +23,7 @@ import org.eclipse.sisu.inject.BindingPublisher;
 import org.eclipse.sisu.inject.DefaultRankingFunction;
 import org.eclipse.sisu.inject.InjectorBindings;
 import org.eclipse.sisu.inject.Legacy;
+import org.eclipse.sisu.inject.Weak;
 import org.sonatype.inject.BeanEntry;
 import org.sonatype.inject.Mediator;
 
@@ -34,6 +40,16 @@ public final class DefaultBeanLocator
 
     private final boolean decoupledDelegate;
 
+    // adapted views are live, but we drop them whenever publishers change so stale entries can be freed
+    private final ConcurrentMap<Key<?>, LegacyBeans<?, ?>> cachedBeans = Weak.concurrentValues( 256, 8 );
+
+    // one queue per watcher, so asynchronous notifications are still delivered in order
+    private final ConcurrentMap<Object, AsyncMediator.SerialQueue> mediatorQueues = Weak.concurrentKeys();
+
+    private volatile Executor mediatorExecutor;
+
+    private volatile LocatorMetrics metrics;
+
     @Inject
     public DefaultBeanLocator( final org.eclipse.sisu.inject.MutableBeanLocator delegate )
     {
@@ -47,45 +63,158 @@ public final class DefaultBeanLocator
         decoupledDelegate = true;
     }
 
+    @SuppressWarnings( "unchecked" )
     public <Q extends Annotation, T> Iterable<BeanEntry<Q, T>> locate( final Key<T> key )
     {
-        return Legacy.adapt( delegate.<Q, T> locate( key ) );
+        LegacyBeans<Q, T> beans = (LegacyBeans<Q, T>) cachedBeans.get( key );
+        if ( null == beans )
+        {
+            beans = new LegacyBeans<Q, T>( delegate.<Q, T> locate( key ) );
+            final LegacyBeans<Q, T> oldBeans = (LegacyBeans<Q, T>) cachedBeans.putIfAbsent( key, beans );
+            if ( null != oldBeans )
+            {
+                beans = oldBeans;
+            }
+        }
+
+        final LocatorMetrics m = metrics;
+        if ( null != m )
+        {
+            m.located( key );
+            return beans.metered( key, m ); // located beans are resolved lazily, so time the iteration
+        }
+        return beans;
+    }
+
+    // keys of the same type share ranked bindings in the delegate, so each publisher is visited once per type
+    public Map<Key<?>, Iterable<? extends BeanEntry<?, ?>>> locateAll( final Collection<? extends Key<?>> keys )
+    {
+        final Map<Key<?>, Iterable<? extends BeanEntry<?, ?>>> beans =
+            new LinkedHashMap<Key<?>, Iterable<? extends BeanEntry<?, ?>>>( keys.size() * 4 / 3 + 1 );
+        for ( final Key<?> key : keys )
+        {
+            if ( !beans.containsKey( key ) )
+            {
+                beans.put( key, locate( key ) );
+            }
+        }
+        return beans;
     }
 
     public <Q extends Annotation, T, W> void watch( final Key<T> key, final Mediator<Q, T, W> mediator, final W watcher )
     {
-        delegate.watch( key, Legacy.adapt( mediator ), watcher );
+        final org.eclipse.sisu.Mediator<Q, T, W> adapted = Legacy.adapt( mediator );
+        final Executor executor = mediatorExecutor;
+        if ( null != executor && null != adapted )
+        {
+            watch( key, new AsyncMediator<Q, T, W>( adapted, mediatorQueue( watcher, executor ) ), watcher );
+        }
+        else
+        {
+            watch( key, adapted, watcher );
+        }
     }
 
     public <Q extends Annotation, T, W> void watch( final Key<T> key,
                                                     final org.eclipse.sisu.Mediator<Q, T, W> mediator, final W watcher )
     {
+        final LocatorMetrics m = metrics;
+        final long start = null != m ? System.nanoTime() : 0;
+
         delegate.watch( key, mediator, watcher );
+
+        if ( null != m )
+        {
+            m.watched( key, System.nanoTime() - start );
+        }
+    }
+
+    public void setMediatorExecutor( final Executor executor )
+    {
+        mediatorExecutor = executor;
+        for ( final AsyncMediator.SerialQueue queue : mediatorQueues.values() )
+        {
+            queue.rebind( executor );
+        }
+    }
+
+    public void setMetrics( final LocatorMetrics metrics )
+    {
+        this.metrics = metrics;
     }
 
     public void add( final Injector injector, final int rank )
     {
-        delegate.add( new InjectorBindings( injector, new DefaultRankingFunction( rank ) ) );
+        add( new InjectorBindings( injector, new DefaultRankingFunction( rank ) ) );
     }
 
     public void remove( final Injector injector )
     {
-        delegate.remove( new InjectorBindings( injector, null /* unused */ ) );
+        remove( new InjectorBindings( injector, null /* unused */ ) );
     }
 
     public void clear()
     {
+        final LocatorMetrics m = metrics;
+        final long start = null != m ? System.nanoTime() : 0;
+
         delegate.clear();
+        cachedBeans.clear();
+
+        if ( null != m )
+        {
+            m.cleared( System.nanoTime() - start );
+        }
     }
 
     public boolean add( final BindingPublisher publisher )
     {
-        return delegate.add( publisher );
+        if ( publish( publisher ) )
+        {
+            cachedBeans.clear();
+            return true;
+        }
+        return false;
     }
 
     public boolean remove( final BindingPublisher publisher )
     {
-        return delegate.remove( publisher );
+        if ( withdraw( publisher ) )
+        {
+            cachedBeans.clear();
+            return true;
+        }
+        return false;
+    }
+
+    // only the clearing of cached views is batched; the delegate still ranks each publisher and notifies
+    // watchers once per publisher
+    public boolean addAll( final Collection<? extends BindingPublisher> publishers )
+    {
+        boolean changed = false;
+        for ( final BindingPublisher publisher : publishers )
+        {
+            changed |= publish( publisher );
+        }
+        if ( changed )
+        {
+            cachedBeans.clear();
+        }
+        return changed;
+    }
+
+    public boolean removeAll( final Collection<? extends BindingPublisher> publishers )
+    {
+        boolean changed = false;
+        for ( final BindingPublisher publisher : publishers )
+        {
+            changed |= withdraw( publisher );
+        }
+        if ( changed )
+        {
+            cachedBeans.clear();
+        }
+        return changed;
     }
 
     public Iterable<BindingPublisher> publishers()
@@ -93,13 +222,55 @@ public final class DefaultBeanLocator
         return delegate.publishers();
     }
 
+    private boolean publish( final BindingPublisher publisher )
+    {
+        final LocatorMetrics m = metrics;
+        if ( null == m )
+        {
+            return delegate.add( publisher );
+        }
+        final long start = System.nanoTime();
+        final boolean added = delegate.add( publisher );
+        m.added( publisher, System.nanoTime() - start );
+        return added;
+    }
+
+    private boolean withdraw( final BindingPublisher publisher )
+    {
+        final LocatorMetrics m = metrics;
+        if ( null == m )
+        {
+            return delegate.remove( publisher );
+        }
+        final long start = System.nanoTime();
+        final boolean removed = delegate.remove( publisher );
+        m.removed( publisher, System.nanoTime() - start );
+        return removed;
+    }
+
+    private AsyncMediator.SerialQueue mediatorQueue( final Object watcher, final Executor executor )
+    {
+        AsyncMediator.SerialQueue queue = mediatorQueues.get( watcher );
+        if ( null == queue )
+        {
+            queue = new AsyncMediator.SerialQueue( executor );
+            final AsyncMediator.SerialQueue oldQueue = mediatorQueues.putIfAbsent( watcher, queue );
+            if ( null != oldQueue )
+            {
+                queue = oldQueue;
+            }
+        }
+        queue.rebind( executor ); // no-op unless the executor changed since the watcher's last watch
+        return queue;
+    }
+
     @Inject
     void autoPublish( final Injector injector )
     {
         if ( decoupledDelegate )
         {
             final RankingFunction function = injector.getInstance( RankingFunction.class );
-            delegate.add( new InjectorBindings( injector, function ) );
+            add( new InjectorBindings( injector, function ) );
         }
     }
 }
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.bean.locators;
+
+import java.lang.annotation.Annotation;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.sisu.inject.Legacy;
+import org.eclipse.sisu.inject.Weak;
+import org.sonatype.inject.BeanEntry;
+
+import com.google.inject.Key;
+
+@Deprecated
+final class LegacyBeans<Q extends Annotation, T>
+    implements Iterable<BeanEntry<Q, T>>
+{
+    // adapted entries are only kept while something else refers to them
+    private final ConcurrentMap<org.eclipse.sisu.BeanEntry<Q, T>, BeanEntry<Q, T>> adaptedEntries =
+        Weak.concurrentValues();
+
+    private final Iterable<? extends org.eclipse.sisu.BeanEntry<Q, T>> delegate;
+
+    LegacyBeans( final Iterable<? extends org.eclipse.sisu.BeanEntry<Q, T>> delegate )
+    {
+        this.delegate = delegate;
+    }
+
+    public Iterator<BeanEntry<Q, T>> iterator()
+    {
+        final Iterator<? extends org.eclipse.sisu.BeanEntry<Q, T>> itr = delegate.iterator();
+        return new Iterator<BeanEntry<Q, T>>()
+        {
+            public boolean hasNext()
+            {
+                return itr.hasNext();
+            }
+
+            public BeanEntry<Q, T> next()
+            {
+                return adapt( itr.next() );
+            }
+
+            public void remove()
+            {
+                itr.remove();
+            }
+        };
+    }
+
+    Iterable<BeanEntry<Q, T>> metered( final Key<T> key, final LocatorMetrics metrics )
+    {
+        return new Iterable<BeanEntry<Q, T>>()
+        {
+            public Iterator<BeanEntry<Q, T>> iterator()
+            {
+                return new MeteredIterator( LegacyBeans.this.iterator(), key, metrics );
+            }
+        };
+    }
+
+    BeanEntry<Q, T> adapt( final org.eclipse.sisu.BeanEntry<Q, T> entry )
+    {
+        BeanEntry<Q, T> legacyEntry = adaptedEntries.get( entry );
+        if ( null == legacyEntry )
+        {
+            legacyEntry = Legacy.adapt( entry );
+            final BeanEntry<Q, T> oldEntry = adaptedEntries.putIfAbsent( entry, legacyEntry );
+            if ( null != oldEntry )
+            {
+                legacyEntry = oldEntry;
+            }
+        }
+        return legacyEntry;
+    }
+
+    final class MeteredIterator
+        implements Iterator<BeanEntry<Q, T>>
+    {
+        private final Iterator<BeanEntry<Q, T>> itr;
+
+        private final Key<T> key;
+
+        private final LocatorMetrics metrics;
+
+        private long pendingNanos;
+
+        private boolean exhausted;
+
+        MeteredIterator( final Iterator<BeanEntry<Q, T>> itr, final Key<T> key, final LocatorMetrics metrics )
+        {
+            this.itr = itr;
+            this.key = key;
+            this.metrics = metrics;
+        }
+
+        public boolean hasNext()
+        {
+            final long start = System.nanoTime();
+            final boolean hasNext = itr.hasNext();
+            pendingNanos += System.nanoTime() - start;
+            if ( !hasNext && !exhausted )
+            {
+                exhausted = true;
+                report();
+            }
+            return hasNext;
+        }
+
+        public BeanEntry<Q, T> next()
+        {
+            final long start = System.nanoTime();
+            try
+            {
+                return itr.next();
+            }
+            finally
+            {
+                pendingNanos += System.nanoTime() - start;
+                report();
+            }
+        }
+
+        public void remove()
+        {
+            itr.remove();
+        }
+
+        private void report()
+        {
+            metrics.resolved( key, pendingNanos );
+            pendingNanos = 0;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.bean.locators;
+
+import org.eclipse.sisu.inject.BindingPublisher;
+
+import com.google.inject.Key;
+
+@Deprecated
+public interface LocatorMetrics
+{
+    void located( Key<?> key );
+
+    // time spent finding the next located bean, or finding there are none left, while iterating
+    void resolved( Key<?> key, long nanos );
+
+    void watched( Key<?> key, long nanos );
+
+    void added( BindingPublisher publisher, long nanos );
+
+    void removed( BindingPublisher publisher, long nanos );
+
+    void cleared( long nanos );
+}
@@ -0,0 +1,315 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.bean.locators;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.eclipse.sisu.inject.BindingPublisher;
+import org.eclipse.sisu.inject.Logs;
+
+import com.google.inject.Key;
+
+@Deprecated
+public final class LocatorStatistics
+    implements LocatorMetrics, LocatorStatisticsMBean
+{
+    static final int MAX_TRACKED_KEYS = 1024;
+
+    private static final int MAX_REPORTED_KEYS = 20;
+
+    private final AtomicLong locateCount = new AtomicLong();
+
+    private final Latency resolve = new Latency( "resolve" );
+
+    private final Latency watch = new Latency( "watch" );
+
+    private final Latency add = new Latency( "add" );
+
+    private final Latency remove = new Latency( "remove" );
+
+    private final Latency clear = new Latency( "clear" );
+
+    // bounded, so a flood of distinct keys can't grow the statistics without limit; once full, new keys are only
+    // counted as untracked until the next reset
+    private final ConcurrentMap<Key<?>, AtomicLong> keyHits = new ConcurrentHashMap<Key<?>, AtomicLong>();
+
+    private final AtomicLong untrackedCount = new AtomicLong();
+
+    private volatile long slowestAddNanos;
+
+    private volatile String slowestPublisher;
+
+    private ObjectName objectName;
+
+    // registers these statistics with the platform MBean server, under a name unique to this instance
+    public synchronized ObjectName register()
+    {
+        if ( null == objectName )
+        {
+            try
+            {
+                final ObjectName name = new ObjectName( "org.sonatype.guice.bean.locators:type=LocatorStatistics,id="
+                    + Integer.toHexString( System.identityHashCode( this ) ) );
+                ManagementFactory.getPlatformMBeanServer().registerMBean( this, name );
+                objectName = name;
+            }
+            catch ( final JMException e )
+            {
+                Logs.warn( "Cannot register: {}", this, e );
+            }
+        }
+        return objectName;
+    }
+
+    public synchronized void unregister()
+    {
+        if ( null != objectName )
+        {
+            try
+            {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean( objectName );
+            }
+            catch ( final JMException e )
+            {
+                Logs.trace( "Cannot unregister: {}", objectName, e );
+            }
+            objectName = null;
+        }
+    }
+
+    public void located( final Key<?> key )
+    {
+        locateCount.incrementAndGet();
+        AtomicLong hits = keyHits.get( key );
+        if ( null == hits && keyHits.size() < MAX_TRACKED_KEYS ) // may overshoot slightly under contention
+        {
+            final AtomicLong newHits = new AtomicLong();
+            hits = keyHits.putIfAbsent( key, newHits );
+            if ( null == hits )
+            {
+                hits = newHits;
+            }
+        }
+        if ( null != hits )
+        {
+            hits.incrementAndGet();
+        }
+        else
+        {
+            untrackedCount.incrementAndGet();
+        }
+    }
+
+    public void resolved( final Key<?> key, final long nanos )
+    {
+        resolve.record( nanos );
+    }
+
+    public void watched( final Key<?> key, final long nanos )
+    {
+        watch.record( nanos );
+    }
+
+    public void added( final BindingPublisher publisher, final long nanos )
+    {
+        add.record( nanos );
+        if ( nanos > slowestAddNanos )
+        {
+            synchronized ( this )
+            {
+                if ( nanos > slowestAddNanos )
+                {
+                    slowestAddNanos = nanos;
+                    slowestPublisher = publisher + " (" + nanos / 1000 + "us)";
+                }
+            }
+        }
+    }
+
+    public void removed( final BindingPublisher publisher, final long nanos )
+    {
+        remove.record( nanos );
+    }
+
+    public void cleared( final long nanos )
+    {
+        clear.record( nanos );
+    }
+
+    public long getLocateCount()
+    {
+        return locateCount.get();
+    }
+
+    public long getUntrackedLocateCount()
+    {
+        return untrackedCount.get();
+    }
+
+    public long getResolveCount()
+    {
+        return resolve.count.get();
+    }
+
+    public long getWatchCount()
+    {
+        return watch.count.get();
+    }
+
+    public long getAddCount()
+    {
+        return add.count.get();
+    }
+
+    public long getRemoveCount()
+    {
+        return remove.count.get();
+    }
+
+    public long getClearCount()
+    {
+        return clear.count.get();
+    }
+
+    public String[] getLatencySummary()
+    {
+        return new String[] { resolve.toString(), watch.toString(), add.toString(), remove.toString(),
+            clear.toString() };
+    }
+
+    public String[] getHotKeys()
+    {
+        final List<Entry<Key<?>, AtomicLong>> entries = new ArrayList<Entry<Key<?>, AtomicLong>>( keyHits.entrySet() );
+        Collections.sort( entries, new Comparator<Entry<Key<?>, AtomicLong>>()
+        {
+            public int compare( final Entry<Key<?>, AtomicLong> lhs, final Entry<Key<?>, AtomicLong> rhs )
+            {
+                final long l = lhs.getValue().get(), r = rhs.getValue().get();
+                return l < r ? 1 : l > r ? -1 : 0;
+            }
+        } );
+        final int size = Math.min( entries.size(), MAX_REPORTED_KEYS );
+        final String[] hotKeys = new String[size];
+        for ( int i = 0; i < size; i++ )
+        {
+            final Entry<Key<?>, AtomicLong> e = entries.get( i );
+            hotKeys[i] = e.getKey() + "=" + e.getValue().get();
+        }
+        return hotKeys;
+    }
+
+    public String getSlowestPublisher()
+    {
+        return slowestPublisher;
+    }
+
+    public synchronized void reset()
+    {
+        locateCount.set( 0 );
+        resolve.reset();
+        watch.reset();
+        add.reset();
+        remove.reset();
+        clear.reset();
+        keyHits.clear();
+        untrackedCount.set( 0 );
+        slowestAddNanos = 0;
+        slowestPublisher = null;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "LocatorStatistics" + Arrays.toString( getLatencySummary() );
+    }
+
+    static final class Latency
+    {
+        // power-of-two buckets: bucket N counts calls that took [2^N, 2^(N+1)) nanoseconds
+        private static final int BUCKETS = 64;
+
+        final String name;
+
+        final AtomicLong count = new AtomicLong();
+
+        final AtomicLong totalNanos = new AtomicLong();
+
+        final AtomicLong maxNanos = new AtomicLong();
+
+        final AtomicLongArray histogram = new AtomicLongArray( BUCKETS );
+
+        Latency( final String name )
+        {
+            this.name = name;
+        }
+
+        void record( final long nanos )
+        {
+            final long n = Math.max( nanos, 1 );
+            count.incrementAndGet();
+            totalNanos.addAndGet( n );
+            histogram.incrementAndGet( 63 - Long.numberOfLeadingZeros( n ) );
+            long max;
+            while ( n > ( max = maxNanos.get() ) && !maxNanos.compareAndSet( max, n ) )
+            {
+                // lost the race, try again
+            }
+        }
+
+        long percentileNanos( final double fraction )
+        {
+            final long threshold = (long) Math.ceil( count.get() * fraction );
+            long seen = 0;
+            for ( int i = 0; i < BUCKETS; i++ )
+            {
+                seen += histogram.get( i );
+                if ( seen >= threshold && seen > 0 )
+                {
+                    return i < 62 ? 2L << i : Long.MAX_VALUE;
+                }
+            }
+            return 0;
+        }
+
+        void reset()
+        {
+            count.set( 0 );
+            totalNanos.set( 0 );
+            maxNanos.set( 0 );
+            for ( int i = 0; i < BUCKETS; i++ )
+            {
+                histogram.set( i, 0 );
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            final long n = count.get();
+            final long mean = n > 0 ? totalNanos.get() / n : 0;
+            return name + " count=" + n + " meanNanos=" + mean + " p50Nanos<=" + percentileNanos( 0.5 )
+                + " p99Nanos<=" + percentileNanos( 0.99 ) + " maxNanos=" + maxNanos.get();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.bean.locators;
+
+@Deprecated
+public interface LocatorStatisticsMBean
+{
+    long getLocateCount();
+
+    long getUntrackedLocateCount();
+
+    long getResolveCount();
+
+    long getWatchCount();
+
+    long getAddCount();
+
+    long getRemoveCount();
+
+    long getClearCount();
+
+    String[] getLatencySummary();
+
+    String[] getHotKeys();
+
+    String getSlowestPublisher();
+
+    void reset();
+}
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.bean.reflect;
+
+// fixed-size filter over strings; false positives are possible, false negatives are not
+final class BloomFilter
+{
+    private static final int HASHES = 4;
+
+    private static final int BITS_PER_ELEMENT = 10; // roughly 1% false positives with four hashes
+
+    private final long[] bits;
+
+    private final int mask;
+
+    BloomFilter( final int expectedElements )
+    {
+        int size = 64;
+        while ( size < expectedElements * BITS_PER_ELEMENT && size < 1 << 30 )
+        {
+            size <<= 1;
+        }
+        bits = new long[size >>> 6];
+        mask = size - 1;
+    }
+
+    void add( final String element )
+    {
+        final int h1 = element.hashCode();
+        final int h2 = mix( h1 );
+        for ( int i = 0; i < HASHES; i++ )
+        {
+            final int bit = h1 + i * h2 & mask;
+            bits[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    boolean mightContain( final String element )
+    {
+        final int h1 = element.hashCode();
+        final int h2 = mix( h1 );
+        for ( int i = 0; i < HASHES; i++ )
+        {
+            final int bit = h1 + i * h2 & mask;
+            if ( ( bits[bit >>> 6] & 1L << bit ) == 0 )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // second, independent-enough hash derived from the first (murmur3 finalizer), forced odd
+    private static int mix( final int hash )
+    {
+        int h = hash;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h | 1;
+    }
+}
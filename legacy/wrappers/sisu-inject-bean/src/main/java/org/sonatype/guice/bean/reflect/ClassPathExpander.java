@@ -0,0 +1,511 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.bean.reflect;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarFile;
+import java.util.jar.JarInputStream;
+import java.util.jar.Manifest;
+
+import org.eclipse.sisu.inject.Logs;
+import org.eclipse.sisu.space.Streams;
+
+// expands manifest Class-Path entries in the same order as org.eclipse.sisu.space.URLClassSpace, but reads each
+// level of manifests in parallel and remembers the Class-Path of every local jar (keyed by path, size and timestamp)
+// so overlapping class spaces, and later runs when a cache directory is set, don't keep re-opening the same jars;
+// only jars found on a path expanded by this process are kept when the cache is saved
+@Deprecated
+final class ClassPathExpander
+{
+    private static final int MAGIC = 0x53495355; // "SISU"
+
+    private static final int VERSION = 1;
+
+    private static final String MANIFEST_ENTRY = "META-INF/MANIFEST.MF";
+
+    private static final String[] EMPTY_CLASSPATH = {};
+
+    private static final AtomicInteger THREAD_ID = new AtomicInteger();
+
+    static final int DEFAULT_PARALLELISM;
+
+    private static final File CACHE_FILE;
+
+    static
+    {
+        int parallelism;
+        File cacheFile;
+        try
+        {
+            final String expandParallel = System.getProperty( "sisu.classpath.parallel" );
+            if ( "true".equalsIgnoreCase( expandParallel ) )
+            {
+                parallelism = Runtime.getRuntime().availableProcessors();
+            }
+            else
+            {
+                parallelism = null != expandParallel ? Integer.parseInt( expandParallel ) : 1;
+            }
+            final String cacheDir = System.getProperty( "sisu.scan.cache.dir" );
+            cacheFile = null != cacheDir && cacheDir.trim().length() > 0 ? new File( cacheDir, "classpath.idx" ) : null;
+        }
+        catch ( final RuntimeException e )
+        {
+            parallelism = 1;
+            cacheFile = null;
+        }
+        DEFAULT_PARALLELISM = parallelism;
+        CACHE_FILE = cacheFile;
+    }
+
+    private static final Map<String, JarClassPath> jars = new ConcurrentHashMap<String, JarClassPath>();
+
+    private static final Set<String> used = Collections.newSetFromMap( new ConcurrentHashMap<String, Boolean>() );
+
+    private static boolean loaded;
+
+    private static volatile boolean dirty;
+
+    private ClassPathExpander()
+    {
+    }
+
+    // same search order as URLClassSpace: first URLClassLoader with a non-empty path, else the system class path
+    static URL[] defaultPath( final ClassLoader loader )
+    {
+        final ClassLoader systemLoader = ClassLoader.getSystemClassLoader();
+        for ( ClassLoader l = loader; l != null; l = l.getParent() )
+        {
+            if ( l instanceof URLClassLoader )
+            {
+                final URL[] path = ( (URLClassLoader) l ).getURLs();
+                if ( null != path && path.length > 0 )
+                {
+                    return path;
+                }
+            }
+            else if ( l == systemLoader )
+            {
+                return systemPath();
+            }
+        }
+        return null;
+    }
+
+    static URL[] expand( final URL[] classPath )
+    {
+        return expand( classPath, DEFAULT_PARALLELISM );
+    }
+
+    // breadth-first, level by level, which visits entries in the same order as the original single work queue
+    static URL[] expand( final URL[] classPath, final int parallelism )
+    {
+        if ( null != CACHE_FILE )
+        {
+            load();
+        }
+
+        final List<URL> expandedPath = new ArrayList<URL>();
+        final Set<String> visited = new HashSet<String>();
+
+        List<URL> searchPath = Arrays.asList( classPath );
+        while ( !searchPath.isEmpty() )
+        {
+            final List<URL> level = new ArrayList<URL>();
+            for ( final URL entry : searchPath )
+            {
+                final URL url = normalizeEntry( entry );
+                if ( null != url && visited.add( url.toString() ) )
+                {
+                    level.add( url );
+                }
+            }
+            expandedPath.addAll( level );
+
+            final String[][] classPathEntries = getClassPathEntries( level, parallelism );
+
+            searchPath = new ArrayList<URL>();
+            for ( int i = 0; i < classPathEntries.length; i++ )
+            {
+                for ( final String entry : classPathEntries[i] )
+                {
+                    try
+                    {
+                        searchPath.add( new URL( level.get( i ), entry ) );
+                    }
+                    catch ( final MalformedURLException e ) // NOPMD
+                    {
+                        // invalid Class-Path entry
+                    }
+                }
+            }
+        }
+
+        if ( dirty && null != CACHE_FILE )
+        {
+            save();
+        }
+
+        return expandedPath.toArray( new URL[expandedPath.size()] );
+    }
+
+    private static String[][] getClassPathEntries( final List<URL> level, final int parallelism )
+    {
+        final String[][] classPathEntries = new String[level.size()][];
+        if ( parallelism <= 1 || level.size() <= 1 )
+        {
+            for ( int i = 0; i < classPathEntries.length; i++ )
+            {
+                classPathEntries[i] = getClassPathEntries( level.get( i ) );
+            }
+            return classPathEntries;
+        }
+
+        final ExecutorService executor =
+            Executors.newFixedThreadPool( Math.min( parallelism, level.size() ), new ThreadFactory()
+            {
+                public Thread newThread( final Runnable task )
+                {
+                    final Thread thread = new Thread( task, "sisu-classpath-" + THREAD_ID.incrementAndGet() );
+                    thread.setDaemon( true );
+                    return thread;
+                }
+            } );
+
+        try
+        {
+            final List<Future<String[]>> futures = new ArrayList<Future<String[]>>( level.size() );
+            for ( final URL url : level )
+            {
+                futures.add( executor.submit( new Callable<String[]>()
+                {
+                    public String[] call()
+                    {
+                        return getClassPathEntries( url );
+                    }
+                } ) );
+            }
+            for ( int i = 0; i < classPathEntries.length; i++ )
+            {
+                classPathEntries[i] = get( futures.get( i ) );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        return classPathEntries;
+    }
+
+    private static String[] get( final Future<String[]> future )
+    {
+        try
+        {
+            return future.get();
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Interrupted while expanding class path", e );
+        }
+        catch ( final ExecutionException e )
+        {
+            final Throwable cause = e.getCause();
+            if ( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
+            }
+            if ( cause instanceof Error )
+            {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException( cause );
+        }
+    }
+
+    static String[] getClassPathEntries( final URL url )
+    {
+        final File file = url.getPath().endsWith( "/" ) ? null : IndexedClassSpace.toFile( url );
+        if ( null == file )
+        {
+            return readClassPathEntries( url, null ); // directories and remote jars are always read live
+        }
+
+        final String key = file.getAbsolutePath();
+        final long length = file.length();
+        final long lastModified = file.lastModified();
+        used.add( key );
+
+        final JarClassPath jar = jars.get( key );
+        if ( null != jar && jar.length == length && jar.lastModified == lastModified )
+        {
+            return jar.entries;
+        }
+        final String[] entries = readClassPathEntries( url, file );
+        if ( length > 0 )
+        {
+            jars.put( key, new JarClassPath( length, lastModified, entries ) );
+            dirty = true;
+        }
+        return entries;
+    }
+
+    private static String[] readClassPathEntries( final URL url, final File file )
+    {
+        try
+        {
+            final Manifest manifest;
+            if ( null == file && url.getPath().endsWith( "/" ) )
+            {
+                final InputStream in = Streams.open( new URL( url, MANIFEST_ENTRY ) );
+                try
+                {
+                    manifest = new Manifest( in );
+                }
+                finally
+                {
+                    in.close();
+                }
+            }
+            else if ( null != file )
+            {
+                final JarFile jf = new JarFile( file );
+                try
+                {
+                    manifest = jf.getManifest();
+                }
+                finally
+                {
+                    jf.close();
+                }
+            }
+            else
+            {
+                final JarInputStream jin = new JarInputStream( Streams.open( url ) );
+                try
+                {
+                    manifest = jin.getManifest();
+                }
+                finally
+                {
+                    jin.close();
+                }
+            }
+            if ( null != manifest )
+            {
+                final String classPath = manifest.getMainAttributes().getValue( "Class-Path" );
+                if ( null != classPath )
+                {
+                    return classPath.split( " " );
+                }
+            }
+        }
+        catch ( final IOException e ) // NOPMD
+        {
+            // missing manifest
+        }
+        return EMPTY_CLASSPATH;
+    }
+
+    private static URL normalizeEntry( final URL url )
+    {
+        if ( null != url && "jar".equals( url.getProtocol() ) )
+        {
+            final String path = url.getPath();
+            if ( path.endsWith( "!/" ) )
+            {
+                try
+                {
+                    return new URL( path.substring( 0, path.length() - 2 ) );
+                }
+                catch ( final MalformedURLException e )
+                {
+                    throw new IllegalStateException( e.toString() ); // this shouldn't happen
+                }
+            }
+        }
+        return url;
+    }
+
+    private static URL[] systemPath()
+    {
+        final String[] paths = System.getProperty( "java.class.path", "." ).split( File.pathSeparator );
+        final URL[] urls = new URL[paths.length];
+        for ( int i = 0; i < paths.length; i++ )
+        {
+            try
+            {
+                urls[i] = new File( paths[i] ).toURI().toURL();
+            }
+            catch ( final MalformedURLException e )
+            {
+                urls[i] = null; // ignore malformed class-path entry
+            }
+        }
+        return urls;
+    }
+
+    private static synchronized void load()
+    {
+        if ( loaded )
+        {
+            return;
+        }
+        loaded = true;
+        if ( !CACHE_FILE.isFile() )
+        {
+            return;
+        }
+        try
+        {
+            final DataInputStream in =
+                new DataInputStream( new BufferedInputStream( new FileInputStream( CACHE_FILE ) ) );
+            try
+            {
+                if ( MAGIC != in.readInt() || VERSION != in.readInt() )
+                {
+                    return;
+                }
+                for ( int i = 0, size = in.readInt(); i < size; i++ )
+                {
+                    final String key = in.readUTF();
+                    final long length = in.readLong();
+                    final long lastModified = in.readLong();
+                    final String[] entries = new String[in.readInt()];
+                    for ( int n = 0; n < entries.length; n++ )
+                    {
+                        entries[n] = in.readUTF();
+                    }
+                    jars.put( key, new JarClassPath( length, lastModified, entries ) );
+                }
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch ( final IOException e )
+        {
+            Logs.trace( "Ignoring class path cache: {}", CACHE_FILE, e );
+            jars.clear();
+        }
+    }
+
+    private static synchronized void save()
+    {
+        dirty = false;
+        File tmpFile = null;
+        try
+        {
+            final File directory = CACHE_FILE.getParentFile();
+            directory.mkdirs();
+            tmpFile = File.createTempFile( CACHE_FILE.getName(), ".tmp", directory );
+            final DataOutputStream out =
+                new DataOutputStream( new BufferedOutputStream( new FileOutputStream( tmpFile ) ) );
+            try
+            {
+                final List<Map.Entry<String, JarClassPath>> entries = new ArrayList<Map.Entry<String, JarClassPath>>();
+                for ( final Map.Entry<String, JarClassPath> e : jars.entrySet() )
+                {
+                    if ( used.contains( e.getKey() ) )
+                    {
+                        entries.add( e );
+                    }
+                    else
+                    {
+                        jars.remove( e.getKey() ); // stale entry loaded from an earlier run
+                    }
+                }
+                out.writeInt( MAGIC );
+                out.writeInt( VERSION );
+                out.writeInt( entries.size() );
+                for ( final Map.Entry<String, JarClassPath> e : entries )
+                {
+                    final JarClassPath jar = e.getValue();
+                    out.writeUTF( e.getKey() );
+                    out.writeLong( jar.length );
+                    out.writeLong( jar.lastModified );
+                    out.writeInt( jar.entries.length );
+                    for ( final String entry : jar.entries )
+                    {
+                        out.writeUTF( entry );
+                    }
+                }
+            }
+            finally
+            {
+                out.close();
+            }
+            if ( !tmpFile.renameTo( CACHE_FILE ) )
+            {
+                CACHE_FILE.delete();
+                if ( !tmpFile.renameTo( CACHE_FILE ) )
+                {
+                    throw new IOException( "Cannot replace " + CACHE_FILE );
+                }
+            }
+            tmpFile = null;
+        }
+        catch ( final IOException e )
+        {
+            Logs.trace( "Problem saving class path cache: {}", CACHE_FILE, e );
+        }
+        finally
+        {
+            if ( null != tmpFile )
+            {
+                tmpFile.delete();
+            }
+        }
+    }
+
+    static final class JarClassPath
+    {
+        final long length;
+
+        final long lastModified;
+
+        final String[] entries;
+
+        JarClassPath( final long length, final long lastModified, final String[] entries )
+        {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.entries = entries;
+        }
+    }
+}
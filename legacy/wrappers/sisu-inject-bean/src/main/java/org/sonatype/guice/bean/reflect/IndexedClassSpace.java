@@ -0,0 +1,494 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.bean.reflect;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.eclipse.sisu.inject.DeferredClass;
+import org.eclipse.sisu.inject.Logs;
+import org.eclipse.sisu.space.Streams;
+
+// answers findEntries from a lazily built table of jar entries, with a bloom filter so probes for missing
+// resources don't have to open every jar on the class path; directories are always listed live
+@Deprecated
+public final class IndexedClassSpace
+    implements ClassSpace
+{
+    private static final String[] NO_NAMES = {};
+
+    private static final URL[] NO_URLS = {};
+
+    private final org.eclipse.sisu.space.URLClassSpace space;
+
+    private final ClassLoader loader;
+
+    private final URL[] explicitPath;
+
+    private final String pathDetails;
+
+    private URL[] classPath;
+
+    private URL[] urls;
+
+    private File[] folders;
+
+    private String[][] jarEntries;
+
+    private String[][] sortedJarEntries;
+
+    private BloomFilter jarFilter;
+
+    private boolean indexable;
+
+    private org.eclipse.sisu.space.URLClassSpace fallbackSpace;
+
+    public IndexedClassSpace( final org.eclipse.sisu.space.URLClassSpace space )
+    {
+        this.space = space;
+        loader = null;
+        explicitPath = null;
+        pathDetails = null;
+    }
+
+    // these expand the class path themselves, so the wrapped space never has to re-read the same manifests
+
+    IndexedClassSpace( final ClassLoader loader )
+    {
+        space = new org.eclipse.sisu.space.URLClassSpace( loader );
+        this.loader = loader;
+        explicitPath = null;
+        pathDetails = null;
+    }
+
+    IndexedClassSpace( final ClassLoader loader, final URL[] path )
+    {
+        space = new org.eclipse.sisu.space.URLClassSpace( loader );
+        this.loader = loader;
+        explicitPath = null != path ? path.clone() : NO_URLS;
+        pathDetails = Arrays.toString( path );
+    }
+
+    public Class<?> loadClass( final String name )
+    {
+        return space.loadClass( name );
+    }
+
+    public DeferredClass<?> deferLoadClass( final String name )
+    {
+        return space.deferLoadClass( name );
+    }
+
+    public URL getResource( final String name )
+    {
+        return space.getResource( name ); // may come from parent loaders, so can't be answered by the index
+    }
+
+    public Enumeration<URL> getResources( final String name )
+    {
+        return space.getResources( name );
+    }
+
+    public Enumeration<URL> findEntries( final String path, final String glob, final boolean recurse )
+    {
+        if ( !buildIndex() )
+        {
+            return fallbackSpace().findEntries( path, glob, recurse );
+        }
+        return new Entries( normalizeSearchPath( path ), glob, recurse );
+    }
+
+    public URL[] getURLs()
+    {
+        return getClassPath().clone();
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return space.hashCode();
+    }
+
+    @Override
+    public boolean equals( final Object rhs )
+    {
+        if ( this == rhs )
+        {
+            return true;
+        }
+        if ( rhs instanceof IndexedClassSpace )
+        {
+            return space.equals( ( (IndexedClassSpace) rhs ).space );
+        }
+        return false;
+    }
+
+    @Override
+    public String toString()
+    {
+        return null == pathDetails ? space.toString() : space + "(" + pathDetails + ")";
+    }
+
+    private synchronized URL[] getClassPath()
+    {
+        if ( null == classPath )
+        {
+            if ( null == loader )
+            {
+                classPath = space.getURLs();
+            }
+            else
+            {
+                final URL[] path = null != pathDetails ? explicitPath : ClassPathExpander.defaultPath( loader );
+                classPath = null != path && path.length > 0 ? ClassPathExpander.expand( path ) : NO_URLS;
+            }
+        }
+        return classPath;
+    }
+
+    // same expanded path as the index would have used, created once rather than on every search
+    private synchronized org.eclipse.sisu.space.URLClassSpace fallbackSpace()
+    {
+        if ( null == fallbackSpace )
+        {
+            fallbackSpace = null != loader ? new org.eclipse.sisu.space.URLClassSpace( loader, getClassPath() ) : space;
+        }
+        return fallbackSpace;
+    }
+
+    private synchronized boolean buildIndex()
+    {
+        if ( null == urls )
+        {
+            final URL[] path = getClassPath();
+            folders = new File[path.length];
+            jarEntries = new String[path.length][];
+            sortedJarEntries = new String[path.length][];
+            indexable = true;
+
+            int total = 0;
+            for ( int i = 0; i < path.length && indexable; i++ )
+            {
+                final File file = toFile( path[i] );
+                if ( null == file )
+                {
+                    indexable = false; // remote or nested jar, leave it to the original space
+                }
+                else if ( path[i].getPath().endsWith( "/" ) )
+                {
+                    folders[i] = file;
+                }
+                else
+                {
+                    jarEntries[i] = readEntryNames( file );
+                    sortedJarEntries[i] = jarEntries[i].clone();
+                    Arrays.sort( sortedJarEntries[i] );
+                    total += jarEntries[i].length;
+                }
+            }
+
+            jarFilter = new BloomFilter( total );
+            for ( final String[] names : jarEntries )
+            {
+                for ( int n = 0; null != names && n < names.length; n++ )
+                {
+                    jarFilter.add( names[n] );
+                }
+            }
+            urls = path;
+        }
+        return indexable;
+    }
+
+    static File toFile( final URL url )
+    {
+        if ( !"file".equals( url.getProtocol() ) )
+        {
+            return null;
+        }
+        try
+        {
+            return new File( url.toURI() );
+        }
+        catch ( final Exception e )
+        {
+            return null;
+        }
+    }
+
+    private static String[] readEntryNames( final File jar )
+    {
+        try
+        {
+            final ZipFile zipFile = new ZipFile( jar );
+            try
+            {
+                final String[] names = new String[zipFile.size()];
+                final Enumeration<? extends ZipEntry> e = zipFile.entries();
+                for ( int i = 0; i < names.length; i++ )
+                {
+                    names[i] = e.nextElement().getName();
+                }
+                return names;
+            }
+            finally
+            {
+                zipFile.close();
+            }
+        }
+        catch ( final IOException e )
+        {
+            Logs.trace( "Cannot index: {} cause: {}", jar, e );
+            return NO_NAMES;
+        }
+    }
+
+    static String normalizeSearchPath( final String path )
+    {
+        if ( null == path || "/".equals( path ) )
+        {
+            return "";
+        }
+        boolean echoSlash = false;
+        final StringBuilder buf = new StringBuilder();
+        for ( int i = 0, length = path.length(); i < length; i++ )
+        {
+            // ignore any duplicate slashes
+            final char c = path.charAt( i );
+            final boolean isNotSlash = '/' != c;
+            if ( echoSlash || isNotSlash )
+            {
+                echoSlash = isNotSlash;
+                buf.append( c );
+            }
+        }
+        if ( echoSlash )
+        {
+            buf.append( '/' );
+        }
+        return buf.toString();
+    }
+
+    static URL entryURL( final URL url, final String name )
+    {
+        try
+        {
+            return url.getPath().endsWith( "/" ) ? new URL( url, name ) : new URL( "jar:" + url + "!/" + name );
+        }
+        catch ( final MalformedURLException e )
+        {
+            throw new IllegalStateException( e.toString() ); // this shouldn't happen
+        }
+    }
+
+    // same results, in the same order, as walking the class path entry by entry
+    final class Entries
+        implements Enumeration<URL>
+    {
+        private final String subPath;
+
+        private final boolean recurse;
+
+        private final String exactName;
+
+        private final String prefix;
+
+        private final String suffix;
+
+        private final Pattern pattern;
+
+        private final boolean mayBeInJar;
+
+        private final List<String> names = new ArrayList<String>();
+
+        private int urlIndex;
+
+        private int nameIndex;
+
+        private URL currentURL;
+
+        Entries( final String subPath, final String glob, final boolean recurse )
+        {
+            this.subPath = subPath;
+            this.recurse = recurse;
+
+            final int firstWildcard = null != glob ? glob.indexOf( '*' ) : -1;
+            final int lastWildcard = null != glob ? glob.lastIndexOf( '*' ) : -1;
+            if ( null == glob || "*".equals( glob ) )
+            {
+                exactName = prefix = suffix = null;
+                pattern = null;
+            }
+            else if ( firstWildcard < 0 )
+            {
+                exactName = glob;
+                prefix = suffix = null;
+                pattern = null;
+            }
+            else if ( firstWildcard == lastWildcard && firstWildcard == 0 )
+            {
+                suffix = glob.substring( 1 );
+                exactName = prefix = null;
+                pattern = null;
+            }
+            else if ( firstWildcard == lastWildcard && lastWildcard == glob.length() - 1 )
+            {
+                prefix = glob.substring( 0, lastWildcard );
+                exactName = suffix = null;
+                pattern = null;
+            }
+            else
+            {
+                pattern = Pattern.compile( "\\Q" + glob.replaceAll( "\\*+", "\\\\E.*\\\\Q" ) + "\\E" );
+                exactName = prefix = suffix = null;
+            }
+
+            mayBeInJar = null == exactName || recurse || jarFilter.mightContain( subPath + exactName );
+        }
+
+        public boolean hasMoreElements()
+        {
+            while ( nameIndex >= names.size() )
+            {
+                if ( urlIndex >= urls.length )
+                {
+                    return false;
+                }
+                names.clear();
+                nameIndex = 0;
+                currentURL = urls[urlIndex];
+                if ( null != folders[urlIndex] )
+                {
+                    collectFolder( folders[urlIndex] );
+                }
+                else if ( mayBeInJar )
+                {
+                    collectJar( urlIndex );
+                }
+                urlIndex++;
+            }
+            return true;
+        }
+
+        public URL nextElement()
+        {
+            if ( hasMoreElements() )
+            {
+                return entryURL( currentURL, names.get( nameIndex++ ) );
+            }
+            throw new NoSuchElementException();
+        }
+
+        private void collectJar( final int i )
+        {
+            if ( null != exactName && !recurse )
+            {
+                final String name = subPath + exactName;
+                if ( Arrays.binarySearch( sortedJarEntries[i], name ) >= 0 )
+                {
+                    names.add( name );
+                }
+                return;
+            }
+            for ( final String name : jarEntries[i] )
+            {
+                if ( matches( name ) )
+                {
+                    names.add( name );
+                }
+            }
+        }
+
+        private void collectFolder( final File folder )
+        {
+            if ( null != exactName && !recurse )
+            {
+                final String name = subPath + exactName;
+                try
+                {
+                    Streams.open( entryURL( currentURL, name ) ).close();
+                    names.add( name );
+                }
+                catch ( final Exception e ) // NOPMD
+                {
+                    // no such resource
+                }
+                return;
+            }
+            final String rootPath = folder.getAbsoluteFile().toURI().getPath();
+            final Deque<String> pending = new ArrayDeque<String>();
+            appendListing( rootPath, subPath, pending );
+            while ( !pending.isEmpty() )
+            {
+                final String name = pending.removeFirst();
+                if ( recurse && name.endsWith( "/" ) )
+                {
+                    appendListing( rootPath, name, pending );
+                }
+                if ( matches( name ) )
+                {
+                    names.add( name );
+                }
+            }
+        }
+
+        private void appendListing( final String rootPath, final String path, final Deque<String> pending )
+        {
+            final File[] listing = new File( rootPath + path ).listFiles();
+            if ( null != listing )
+            {
+                for ( final File f : listing )
+                {
+                    pending.add( f.toURI().getPath().substring( rootPath.length() ) );
+                }
+            }
+        }
+
+        private boolean matches( final String name )
+        {
+            if ( name.endsWith( "/" ) || !name.startsWith( subPath ) )
+            {
+                return false; // not inside the search scope
+            }
+            if ( !recurse && name.indexOf( '/', subPath.length() ) > 0 )
+            {
+                return false; // inside a sub-directory
+            }
+            if ( null != suffix )
+            {
+                return name.endsWith( suffix );
+            }
+            final String basename = name.substring( 1 + name.lastIndexOf( '/' ) );
+            if ( null != exactName )
+            {
+                return exactName.equals( basename );
+            }
+            if ( null != prefix )
+            {
+                return basename.startsWith( prefix );
+            }
+            return null == pattern || pattern.matcher( basename ).matches();
+        }
+    }
+}
@@ -26,4 +26,14 @@ public final class URLClassSpace
     {
         super( loader, path );
     }
+
+    public static IndexedClassSpace indexed( final ClassLoader loader )
+    {
+        return new IndexedClassSpace( loader );
+    }
+
+    public static IndexedClassSpace indexed( final ClassLoader loader, final URL[] path )
+    {
+        return new IndexedClassSpace( loader, path );
+    }
 }
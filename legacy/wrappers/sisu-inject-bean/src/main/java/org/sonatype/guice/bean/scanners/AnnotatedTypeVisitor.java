@@ -0,0 +1,18 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.bean.scanners;
+
+@Deprecated
+public interface AnnotatedTypeVisitor
+    extends ClassSpaceVisitor
+{
+    // marks visitors that only react to annotated classes, so scanners may skip classes without annotations
+}
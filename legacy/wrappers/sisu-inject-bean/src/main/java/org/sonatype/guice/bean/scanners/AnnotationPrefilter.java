@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.bean.scanners;
+
+import java.net.URL;
+
+import org.eclipse.sisu.space.ClassSpace;
+import org.eclipse.sisu.space.ClassVisitor;
+import org.eclipse.sisu.space.SpaceVisitor;
+
+@Deprecated
+public final class AnnotationPrefilter
+{
+    static final boolean ENABLED;
+
+    static
+    {
+        boolean enabled;
+        try
+        {
+            enabled = !"false".equalsIgnoreCase( System.getProperty( "sisu.scan.prefilter" ) );
+        }
+        catch ( final RuntimeException e )
+        {
+            enabled = true;
+        }
+        ENABLED = enabled;
+    }
+
+    private static final byte[] VISIBLE = ascii( "RuntimeVisibleAnnotations" );
+
+    private static final byte[] INVISIBLE = ascii( "RuntimeInvisibleAnnotations" );
+
+    private AnnotationPrefilter()
+    {
+    }
+
+    // the annotation attribute names only appear in the constant pool when something in the class is annotated;
+    // this can't look for specific descriptors because any annotation type may be a custom qualifier
+    public static boolean mayHaveAnnotations( final byte[] bytes )
+    {
+        try
+        {
+            final int count = u2( bytes, 8 );
+            int pos = 10;
+            for ( int i = 1; i < count; i++ )
+            {
+                switch ( bytes[pos] )
+                {
+                    case 1: // Utf8
+                        final int length = u2( bytes, pos + 1 );
+                        if ( matches( bytes, pos + 3, length, VISIBLE )
+                            || matches( bytes, pos + 3, length, INVISIBLE ) )
+                        {
+                            return true;
+                        }
+                        pos += 3 + length;
+                        break;
+                    case 7: // Class
+                    case 8: // String
+                    case 16: // MethodType
+                    case 19: // Module
+                    case 20: // Package
+                        pos += 3;
+                        break;
+                    case 15: // MethodHandle
+                        pos += 4;
+                        break;
+                    case 3: // Integer
+                    case 4: // Float
+                    case 9: // Fieldref
+                    case 10: // Methodref
+                    case 11: // InterfaceMethodref
+                    case 12: // NameAndType
+                    case 17: // Dynamic
+                    case 18: // InvokeDynamic
+                        pos += 5;
+                        break;
+                    case 5: // Long
+                    case 6: // Double
+                        pos += 9;
+                        i++;
+                        break;
+                    default:
+                        return true; // unknown constant, let the full parser decide
+                }
+            }
+            return false;
+        }
+        catch ( final ArrayIndexOutOfBoundsException e )
+        {
+            return true; // truncated or broken, let the full parser decide
+        }
+    }
+
+    public static SpaceVisitor wrap( final SpaceVisitor delegate )
+    {
+        return wrap( delegate, new InternTable() );
+    }
+
+    static SpaceVisitor wrap( final SpaceVisitor delegate, final InternTable strings )
+    {
+        return !ENABLED ? delegate : new SpaceVisitor()
+        {
+            public void enterSpace( final ClassSpace space )
+            {
+                delegate.enterSpace( space );
+            }
+
+            public ClassVisitor visitClass( final URL url )
+            {
+                final byte[] bytes = MappedJars.readFully( url );
+                if ( null == bytes )
+                {
+                    return delegate.visitClass( url );
+                }
+                if ( mayHaveAnnotations( bytes ) )
+                {
+                    // parse the bytes we already have rather than letting the scanner read them again
+                    final ClassVisitor cv = delegate.visitClass( url );
+                    if ( null != cv )
+                    {
+                        MappedJars.accept( cv, bytes, url, strings );
+                    }
+                }
+                return null;
+            }
+
+            public void leaveSpace()
+            {
+                delegate.leaveSpace();
+            }
+        };
+    }
+
+    private static int u2( final byte[] bytes, final int pos )
+    {
+        return ( bytes[pos] & 0xFF ) << 8 | bytes[pos + 1] & 0xFF;
+    }
+
+    private static boolean matches( final byte[] bytes, final int pos, final int length, final byte[] name )
+    {
+        if ( length != name.length )
+        {
+            return false;
+        }
+        for ( int i = 0; i < length; i++ )
+        {
+            if ( bytes[pos + i] != name[i] )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] ascii( final String name )
+    {
+        final byte[] bytes = new byte[name.length()];
+        for ( int i = 0; i < bytes.length; i++ )
+        {
+            bytes[i] = (byte) name.charAt( i );
+        }
+        return bytes;
+    }
+}
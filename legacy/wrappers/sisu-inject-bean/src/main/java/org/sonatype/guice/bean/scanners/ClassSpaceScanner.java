@@ -11,6 +11,9 @@
 package org.sonatype.guice.bean.scanners;
 
 import java.net.URL;
+import java.util.Enumeration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 
 import org.eclipse.sisu.inject.Legacy;
 import org.eclipse.sisu.space.asm.Opcodes;
@@ -24,21 +27,130 @@ public final class ClassSpaceScanner
     static final Legacy<org.eclipse.sisu.space.ClassSpace> LEGACY_CLASS_SPACE =
         Legacy.<org.eclipse.sisu.space.ClassSpace, ClassSpace> as( ClassSpace.class );
 
+    private static final org.eclipse.sisu.space.ClassFinder FINDER = new org.eclipse.sisu.space.DefaultClassFinder();
+
+    private final ClassSpace space;
+
     private final org.eclipse.sisu.space.SpaceScanner delegate;
 
+    private int parallelism = ParallelSpaceScanner.DEFAULT_PARALLELISM;
+
+    private boolean virtual = ParallelSpaceScanner.DEFAULT_VIRTUAL;
+
+    private Executor executor;
+
+    private ScanReport report = ScanReport.global();
+
     public ClassSpaceScanner( final ClassSpace space )
     {
-        delegate = new org.eclipse.sisu.space.SpaceScanner( space );
+        this.space = space;
+        delegate = new org.eclipse.sisu.space.SpaceScanner( space, FINDER );
+    }
+
+    public void setParallelism( final int parallelism )
+    {
+        this.parallelism = parallelism;
+        virtual = false;
+    }
+
+    // reads and parses classes using the given executor; visitor callbacks still happen on the calling thread
+    public void setExecutor( final Executor executor )
+    {
+        this.executor = executor;
+    }
+
+    public void setScanReport( final ScanReport report )
+    {
+        this.report = report;
+    }
+
+    public static void setMappedJars( final boolean mapped )
+    {
+        MappedJars.enabled = mapped;
     }
 
     public void accept( final ClassSpaceVisitor visitor )
     {
-        delegate.accept( adapt( visitor ) );
+        final boolean prefilter = visitor instanceof AnnotatedTypeVisitor;
+        if ( null != executor )
+        {
+            ParallelSpaceScanner.accept( space, FINDER, adapt( visitor ), executor, prefilter, report );
+        }
+        else if ( virtual )
+        {
+            final ExecutorService virtualExecutor = ParallelSpaceScanner.newVirtualExecutor();
+            try
+            {
+                ParallelSpaceScanner.accept( space, FINDER, adapt( visitor ), virtualExecutor, prefilter, report );
+            }
+            finally
+            {
+                virtualExecutor.shutdownNow();
+            }
+        }
+        else if ( parallelism > 1 )
+        {
+            ParallelSpaceScanner.accept( space, FINDER, adapt( visitor ), parallelism, prefilter, report );
+        }
+        else
+        {
+            final InternTable strings = new InternTable();
+            final org.eclipse.sisu.space.SpaceVisitor sv;
+            if ( null != report )
+            {
+                sv = report.wrap( adapt( visitor ), prefilter, strings );
+            }
+            else
+            {
+                sv = prefilter ? AnnotationPrefilter.wrap( adapt( visitor ), strings ) : adapt( visitor );
+            }
+            if ( MappedJars.enabled )
+            {
+                scanMapped( sv, strings );
+            }
+            else
+            {
+                delegate.accept( sv );
+            }
+        }
+    }
+
+    // true when -Dsisu.scan.parallel asks for classes to be read on an executor by default
+    public static boolean isParallelByDefault()
+    {
+        return ParallelSpaceScanner.DEFAULT_VIRTUAL || ParallelSpaceScanner.DEFAULT_PARALLELISM > 1;
+    }
+
+    // reads and parses classes found by the finder using the executor, or else the -Dsisu.scan.parallel default;
+    // visitor callbacks still happen on the calling thread
+    public static void accept( final org.eclipse.sisu.space.ClassSpace space,
+                               final org.eclipse.sisu.space.ClassFinder finder,
+                               final org.eclipse.sisu.space.SpaceVisitor visitor, final Executor executor,
+                               final boolean prefilter, final ScanReport report )
+    {
+        if ( null != executor )
+        {
+            ParallelSpaceScanner.accept( space, finder, visitor, executor, prefilter, report );
+            return;
+        }
+        final ExecutorService defaultExecutor = ParallelSpaceScanner.newDefaultExecutor();
+        try
+        {
+            final Executor e = null != defaultExecutor ? defaultExecutor : ParallelSpaceScanner.CALLING_THREAD;
+            ParallelSpaceScanner.accept( space, finder, visitor, e, prefilter, report );
+        }
+        finally
+        {
+            if ( null != defaultExecutor )
+            {
+                defaultExecutor.shutdownNow();
+            }
+        }
     }
 
     public static void accept( final ClassVisitor visitor, final URL url )
     {
-        org.eclipse.sisu.space.SpaceScanner.accept( adapt( visitor ), url );
+        MappedJars.accept( adapt( visitor ), url, null );
     }
 
     public static boolean verify( final ClassSpace space, final Class<?>... specification )
@@ -50,6 +162,9 @@ public final class ClassSpaceScanner
     {
         return null == delegate ? null : new org.eclipse.sisu.space.SpaceVisitor()
         {
+            // reused for every class in the space, classes are never visited concurrently
+            private final ClassAdapter classAdapter = new ClassAdapter();
+
             public void enterSpace( final org.eclipse.sisu.space.ClassSpace space )
             {
                 delegate.visit( (ClassSpace) LEGACY_CLASS_SPACE.proxy( space ) );
@@ -57,7 +172,8 @@ public final class ClassSpaceScanner
 
             public org.eclipse.sisu.space.ClassVisitor visitClass( final URL url )
             {
-                return adapt( delegate.visitClass( url ) );
+                final ClassVisitor cv = delegate.visitClass( url );
+                return null != cv ? classAdapter.reset( cv ) : null;
             }
 
             public void leaveSpace()
@@ -67,46 +183,89 @@ public final class ClassSpaceScanner
         };
     }
 
-    static org.eclipse.sisu.space.ClassVisitor adapt( final ClassVisitor delegate )
+    private void scanMapped( final org.eclipse.sisu.space.SpaceVisitor visitor, final InternTable strings )
     {
-        return null == delegate ? null : new org.eclipse.sisu.space.ClassVisitor()
+        visitor.enterSpace( space );
+        MappedJars.enterScan();
+        try
         {
-            public void enterClass( final int modifiers, final String name, final String _extends,
-                                    final String[] _implements )
+            for ( final Enumeration<URL> result = FINDER.findClasses( space ); result.hasMoreElements(); )
             {
-                delegate.visit( Opcodes.V1_5, modifiers, name, null, _extends, _implements );
+                final URL url = result.nextElement();
+                final org.eclipse.sisu.space.ClassVisitor cv = visitor.visitClass( url );
+                if ( null != cv )
+                {
+                    MappedJars.accept( cv, url, strings );
+                }
             }
+        }
+        finally
+        {
+            MappedJars.leaveScan();
+        }
+        visitor.leaveSpace();
+    }
 
-            public org.eclipse.sisu.space.AnnotationVisitor visitAnnotation( final String desc )
-            {
-                return adapt( delegate.visitAnnotation( desc, true ) );
-            }
+    static org.eclipse.sisu.space.ClassVisitor adapt( final ClassVisitor delegate )
+    {
+        return null == delegate ? null : new ClassAdapter().reset( delegate );
+    }
 
-            public void leaveClass()
-            {
-                delegate.visitEnd();
-            }
-        };
+    static final class ClassAdapter
+        implements org.eclipse.sisu.space.ClassVisitor
+    {
+        private final AnnotationAdapter annotationAdapter = new AnnotationAdapter();
+
+        private ClassVisitor delegate;
+
+        org.eclipse.sisu.space.ClassVisitor reset( final ClassVisitor _delegate )
+        {
+            delegate = _delegate;
+            return this;
+        }
+
+        public void enterClass( final int modifiers, final String name, final String _extends,
+                                final String[] _implements )
+        {
+            delegate.visit( Opcodes.V1_5, modifiers, name, null, _extends, _implements );
+        }
+
+        public org.eclipse.sisu.space.AnnotationVisitor visitAnnotation( final String desc )
+        {
+            final AnnotationVisitor av = delegate.visitAnnotation( desc, true );
+            return null != av ? annotationAdapter.reset( av ) : null;
+        }
+
+        public void leaveClass()
+        {
+            delegate.visitEnd();
+        }
     }
 
-    static org.eclipse.sisu.space.AnnotationVisitor adapt( final AnnotationVisitor delegate )
+    static final class AnnotationAdapter
+        implements org.eclipse.sisu.space.AnnotationVisitor
     {
-        return null == delegate ? null : new org.eclipse.sisu.space.AnnotationVisitor()
+        private AnnotationVisitor delegate;
+
+        org.eclipse.sisu.space.AnnotationVisitor reset( final AnnotationVisitor _delegate )
         {
-            public void enterAnnotation()
-            {
-                // no-op
-            }
+            delegate = _delegate;
+            return this;
+        }
 
-            public void visitElement( final String name, final Object value )
-            {
-                delegate.visit( name, value );
-            }
+        public void enterAnnotation()
+        {
+            // no-op
+        }
 
-            public void leaveAnnotation()
-            {
-                delegate.visitEnd();
-            }
-        };
+        public void visitElement( final String name, final Object value )
+        {
+            delegate.visit( name, value );
+        }
+
+        public void leaveAnnotation()
+        {
+            delegate.visitEnd();
+        }
     }
 }
@@ -0,0 +1,77 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.bean.scanners;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.sonatype.guice.bean.scanners.asm.Type;
+
+// one table per scan, created where the scan starts and passed down to every reader, so each annotation string
+// is only kept once; safe to share between the parallel readers and the visitor of the same scan
+@Deprecated
+public final class InternTable
+{
+    private final ConcurrentMap<String, String> strings = new ConcurrentHashMap<String, String>();
+
+    // keyed by type, so repeated class values don't need a new class name string just to look them up
+    private final ConcurrentMap<org.eclipse.sisu.space.asm.Type, String> classNames =
+        new ConcurrentHashMap<org.eclipse.sisu.space.asm.Type, String>();
+
+    public String intern( final String value )
+    {
+        if ( null == value )
+        {
+            return null;
+        }
+        final String canonical = strings.putIfAbsent( value, value );
+        return null != canonical ? canonical : value;
+    }
+
+    public String className( final org.eclipse.sisu.space.asm.Type type )
+    {
+        String name = classNames.get( type );
+        if ( null == name )
+        {
+            name = intern( type.getClassName() );
+            classNames.putIfAbsent( type, name );
+        }
+        return name;
+    }
+
+    public String className( final Type type )
+    {
+        return className( Type.adapt( type ) );
+    }
+
+    // annotation element values: class values become class names, strings become canonical, the rest pass through
+    public Object value( final Object value )
+    {
+        if ( value instanceof String )
+        {
+            return intern( (String) value );
+        }
+        if ( value instanceof org.eclipse.sisu.space.asm.Type )
+        {
+            return className( (org.eclipse.sisu.space.asm.Type) value );
+        }
+        if ( value instanceof Type )
+        {
+            return className( (Type) value );
+        }
+        return value;
+    }
+
+    public int size()
+    {
+        return strings.size();
+    }
+}
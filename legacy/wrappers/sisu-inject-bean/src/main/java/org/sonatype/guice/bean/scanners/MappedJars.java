@@ -0,0 +1,462 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.bean.scanners;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URL;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.eclipse.sisu.inject.Logs;
+import org.eclipse.sisu.space.AnnotationVisitor;
+import org.eclipse.sisu.space.ClassVisitor;
+import org.eclipse.sisu.space.SpaceScanner;
+import org.eclipse.sisu.space.Streams;
+import org.eclipse.sisu.space.asm.ClassReader;
+import org.eclipse.sisu.space.asm.Opcodes;
+import org.eclipse.sisu.space.asm.Type;
+
+@Deprecated
+final class MappedJars
+{
+    static final boolean DEFAULT_ENABLED;
+
+    static
+    {
+        boolean mapJars;
+        try
+        {
+            // mapped jars live outside the heap and can't be replaced on Windows while mapped, so only on request
+            mapJars = Boolean.parseBoolean( System.getProperty( "sisu.scan.mapped" ) );
+        }
+        catch ( final RuntimeException e )
+        {
+            mapJars = false;
+        }
+        DEFAULT_ENABLED = mapJars;
+    }
+
+    static volatile boolean enabled = DEFAULT_ENABLED;
+
+    private static final int ASM_FLAGS = ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES;
+
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+
+    private static final int CEN_SIGNATURE = 0x02014b50;
+
+    private static final int STORED = 0;
+
+    private static final int DEFLATED = 8;
+
+    static final int MAX_MAPPED_JARS = 16;
+
+    // most recently used mappings, and jars that can't be mapped, only kept while at least one scan is running
+    private static final Map<String, Jar> jars = new LinkedHashMap<String, Jar>( 16, 0.75f, true )
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry( final Map.Entry<String, Jar> eldest )
+        {
+            return size() > MAX_MAPPED_JARS;
+        }
+    };
+
+    private static int activeScans;
+
+    private MappedJars()
+    {
+    }
+
+    static synchronized void enterScan()
+    {
+        activeScans++;
+    }
+
+    static synchronized void leaveScan()
+    {
+        if ( --activeScans <= 0 )
+        {
+            activeScans = 0;
+            jars.clear(); // let the mappings go as soon as the last scan ends
+        }
+    }
+
+    static synchronized int mappedJars()
+    {
+        return jars.size();
+    }
+
+    static void accept( final ClassVisitor visitor, final URL url, final InternTable strings )
+    {
+        final byte[] bytes = enabled && null != url ? read( url ) : null;
+        if ( null == bytes )
+        {
+            SpaceScanner.accept( visitor, url );
+        }
+        else
+        {
+            accept( visitor, bytes, url, strings );
+        }
+    }
+
+    static void accept( final ClassVisitor visitor, final byte[] bytes, final URL url, final InternTable strings )
+    {
+        try
+        {
+            new ClassReader( bytes ).accept( adapt( visitor, strings ), ASM_FLAGS );
+        }
+        catch ( final ArrayIndexOutOfBoundsException e ) // NOPMD
+        {
+            // ignore broken class constant pool in icu4j
+        }
+        catch ( final Exception e )
+        {
+            Logs.trace( "Problem scanning: {}", url, e );
+        }
+    }
+
+    // returns the class bytes from the mapped jar when possible, otherwise from the URL stream
+    static byte[] readFully( final URL url )
+    {
+        final byte[] bytes = enabled ? read( url ) : null;
+        if ( null != bytes )
+        {
+            return bytes;
+        }
+        try
+        {
+            final InputStream in = Streams.open( url );
+            try
+            {
+                final ByteArrayOutputStream buf = new ByteArrayOutputStream( 4096 );
+                final byte[] chunk = new byte[4096];
+                for ( int n; ( n = in.read( chunk ) ) > 0; )
+                {
+                    buf.write( chunk, 0, n );
+                }
+                return buf.toByteArray();
+            }
+            finally
+            {
+                in.close();
+            }
+        }
+        catch ( final IOException e )
+        {
+            Logs.trace( "Problem scanning: {}", url, e );
+            return null;
+        }
+    }
+
+    // returns the entry bytes straight from the mapped jar, or null when the URL isn't a plain local jar entry
+    static byte[] read( final URL url )
+    {
+        final String location = url.toString();
+        if ( !location.startsWith( "jar:file:" ) )
+        {
+            return null;
+        }
+        final int sep = location.indexOf( "!/" );
+        if ( sep < 0 || location.indexOf( "!/", sep + 2 ) > 0 )
+        {
+            return null; // nested jar
+        }
+        try
+        {
+            final Jar jar = open( location.substring( 4, sep ) );
+            return null != jar ? jar.read( decode( location.substring( sep + 2 ) ) ) : null;
+        }
+        catch ( final Exception e )
+        {
+            Logs.trace( "Cannot map: {} cause: {}", url, e );
+            return null;
+        }
+    }
+
+    private static Jar open( final String jarLocation )
+        throws Exception
+    {
+        final File file = new File( new URI( jarLocation ) );
+        final long lastModified = file.lastModified();
+        final long length = file.length();
+
+        synchronized ( MappedJars.class )
+        {
+            if ( activeScans <= 0 )
+            {
+                return null; // outside a scan, so nothing would release the mapping
+            }
+            final Jar jar = jars.get( jarLocation );
+            if ( null != jar && jar.lastModified == lastModified && jar.length == length )
+            {
+                return jar.isMapped() ? jar : null;
+            }
+        }
+        Jar jar = Jar.map( file, lastModified, length );
+        if ( null == jar )
+        {
+            jar = new Jar( lastModified, length, null, null ); // remember jars we can't map until they change
+        }
+        synchronized ( MappedJars.class )
+        {
+            if ( activeScans > 0 )
+            {
+                jars.put( jarLocation, jar );
+            }
+        }
+        return jar.isMapped() ? jar : null;
+    }
+
+    // entry names are percent-encoded UTF-8 in jar URLs, decode them the same way as JarURLConnection
+    static String decode( final String path )
+        throws UnsupportedEncodingException
+    {
+        if ( path.indexOf( '%' ) < 0 )
+        {
+            return path;
+        }
+        final StringBuilder buf = new StringBuilder( path.length() );
+        final ByteArrayOutputStream utf = new ByteArrayOutputStream();
+        for ( int i = 0, len = path.length(); i < len; )
+        {
+            if ( '%' == path.charAt( i ) )
+            {
+                utf.reset();
+                do
+                {
+                    utf.write( Integer.parseInt( path.substring( i + 1, i + 3 ), 16 ) );
+                    i += 3;
+                }
+                while ( i < len && '%' == path.charAt( i ) );
+                buf.append( utf.toString( "UTF-8" ) );
+            }
+            else
+            {
+                buf.append( path.charAt( i++ ) );
+            }
+        }
+        return buf.toString();
+    }
+
+    private static org.eclipse.sisu.space.asm.ClassVisitor adapt( final ClassVisitor _cv, final InternTable strings )
+    {
+        return new org.eclipse.sisu.space.asm.ClassVisitor( Opcodes.ASM5 )
+        {
+            @Override
+            public void visit( final int version, final int access, final String name, final String signature,
+                               final String superName, final String[] interfaces )
+            {
+                _cv.enterClass( access, name, superName, interfaces );
+            }
+
+            @Override
+            public org.eclipse.sisu.space.asm.AnnotationVisitor visitAnnotation( final String desc,
+                                                                                 final boolean visible )
+            {
+                final AnnotationVisitor _av = _cv.visitAnnotation( desc );
+                return null == _av ? null : new org.eclipse.sisu.space.asm.AnnotationVisitor( Opcodes.ASM5 )
+                {
+                    {
+                        _av.enterAnnotation();
+                    }
+
+                    @Override
+                    public void visit( final String name, final Object value )
+                    {
+                        if ( null != strings )
+                        {
+                            _av.visitElement( name, strings.value( value ) );
+                        }
+                        else
+                        {
+                            _av.visitElement( name, value instanceof Type ? ( (Type) value ).getClassName() : value );
+                        }
+                    }
+
+                    @Override
+                    public void visitEnd()
+                    {
+                        _av.leaveAnnotation();
+                    }
+                };
+            }
+
+            @Override
+            public void visitEnd()
+            {
+                _cv.leaveClass();
+            }
+        };
+    }
+
+    static final class Jar
+    {
+        final long lastModified;
+
+        final long length;
+
+        private final ByteBuffer buf;
+
+        // entry name -> position of its central directory record
+        private final Map<String, Integer> entries;
+
+        private Jar( final long lastModified, final long length, final ByteBuffer buf,
+                     final Map<String, Integer> entries )
+        {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.buf = buf;
+            this.entries = entries;
+        }
+
+        static Jar map( final File file, final long lastModified, final long length )
+            throws IOException
+        {
+            if ( length > Integer.MAX_VALUE )
+            {
+                return null;
+            }
+            final ByteBuffer buf;
+            final RandomAccessFile raf = new RandomAccessFile( file, "r" );
+            try
+            {
+                buf = raf.getChannel().map( FileChannel.MapMode.READ_ONLY, 0, length );
+            }
+            finally
+            {
+                raf.close(); // mapping stays valid after close
+            }
+            buf.order( ByteOrder.LITTLE_ENDIAN );
+
+            final int eocd = findEndOfCentralDirectory( buf );
+            if ( eocd < 0 )
+            {
+                return null; // not a zip, or zip64
+            }
+
+            final int count = buf.getShort( eocd + 10 ) & 0xFFFF;
+            final Map<String, Integer> entries = new HashMap<String, Integer>( count * 4 / 3 + 1 );
+
+            int pos = buf.getInt( eocd + 16 );
+            for ( int i = 0; i < count; i++ )
+            {
+                if ( buf.getInt( pos ) != CEN_SIGNATURE )
+                {
+                    return null;
+                }
+                final int nameLength = buf.getShort( pos + 28 ) & 0xFFFF;
+                final int extraLength = buf.getShort( pos + 30 ) & 0xFFFF;
+                final int commentLength = buf.getShort( pos + 32 ) & 0xFFFF;
+
+                final byte[] name = new byte[nameLength];
+                for ( int n = 0; n < nameLength; n++ )
+                {
+                    name[n] = buf.get( pos + 46 + n );
+                }
+                final String entryName = new String( name, "UTF-8" );
+                if ( entryName.endsWith( ".class" ) )
+                {
+                    entries.put( entryName, Integer.valueOf( pos ) );
+                }
+                pos += 46 + nameLength + extraLength + commentLength;
+            }
+            return new Jar( lastModified, length, buf, entries );
+        }
+
+        boolean isMapped()
+        {
+            return null != buf;
+        }
+
+        byte[] read( final String name )
+            throws DataFormatException
+        {
+            final Integer cen = entries.get( name );
+            if ( null == cen )
+            {
+                return null;
+            }
+            final int pos = cen.intValue();
+            final int method = buf.getShort( pos + 10 ) & 0xFFFF;
+            final int compressedSize = buf.getInt( pos + 20 );
+            final int size = buf.getInt( pos + 24 );
+
+            final int loc = buf.getInt( pos + 42 );
+            final int data = loc + 30 + ( buf.getShort( loc + 26 ) & 0xFFFF ) + ( buf.getShort( loc + 28 ) & 0xFFFF );
+
+            final ByteBuffer view = buf.duplicate();
+            ( (Buffer) view ).position( data ); // avoid the covariant override added in Java 9
+
+            if ( STORED == method )
+            {
+                final byte[] bytes = new byte[size];
+                view.get( bytes );
+                return bytes;
+            }
+            if ( DEFLATED == method )
+            {
+                final byte[] compressed = new byte[compressedSize];
+                view.get( compressed );
+
+                final byte[] bytes = new byte[size];
+                final Inflater inflater = new Inflater( true );
+                try
+                {
+                    inflater.setInput( compressed );
+                    int n = 0;
+                    while ( n < size && !inflater.finished() )
+                    {
+                        final int r = inflater.inflate( bytes, n, size - n );
+                        if ( r == 0 && ( inflater.needsInput() || inflater.needsDictionary() ) )
+                        {
+                            break;
+                        }
+                        n += r;
+                    }
+                    return n == size ? bytes : null;
+                }
+                finally
+                {
+                    inflater.end();
+                }
+            }
+            return null; // unsupported compression, use the URL stream instead
+        }
+
+        private static int findEndOfCentralDirectory( final ByteBuffer buf )
+        {
+            final int limit = Math.max( 0, buf.limit() - 22 - 0xFFFF );
+            for ( int pos = buf.limit() - 22; pos >= limit; pos-- )
+            {
+                if ( buf.getInt( pos ) == EOCD_SIGNATURE )
+                {
+                    final int cen = buf.getInt( pos + 16 );
+                    return cen == -1 || ( buf.getShort( pos + 10 ) & 0xFFFF ) == 0xFFFF ? -1 : pos;
+                }
+            }
+            return -1;
+        }
+    }
+}
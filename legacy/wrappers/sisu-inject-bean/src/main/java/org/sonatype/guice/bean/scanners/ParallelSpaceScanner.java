@@ -0,0 +1,304 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.bean.scanners;
+
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.sisu.inject.Logs;
+import org.eclipse.sisu.space.ClassFinder;
+import org.eclipse.sisu.space.ClassSpace;
+import org.eclipse.sisu.space.ClassVisitor;
+import org.eclipse.sisu.space.SpaceVisitor;
+
+@Deprecated
+final class ParallelSpaceScanner
+{
+    private static final int BATCH_SIZE = 64;
+
+    private static final AtomicInteger THREAD_ID = new AtomicInteger();
+
+    private static final Method NEW_VIRTUAL_THREAD_EXECUTOR;
+
+    static final Executor CALLING_THREAD = new Executor()
+    {
+        public void execute( final Runnable task )
+        {
+            task.run();
+        }
+    };
+
+    static final int DEFAULT_PARALLELISM;
+
+    static final boolean DEFAULT_VIRTUAL;
+
+    static
+    {
+        Method newVirtualThreadExecutor;
+        try
+        {
+            newVirtualThreadExecutor = Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" );
+        }
+        catch ( final Exception e )
+        {
+            newVirtualThreadExecutor = null; // needs Java 21 or later
+        }
+        catch ( final LinkageError e )
+        {
+            newVirtualThreadExecutor = null;
+        }
+        NEW_VIRTUAL_THREAD_EXECUTOR = newVirtualThreadExecutor;
+
+        int parallelism;
+        boolean virtual;
+        try
+        {
+            final String scanParallel = System.getProperty( "sisu.scan.parallel" );
+            virtual = "true".equalsIgnoreCase( scanParallel ) || "virtual".equalsIgnoreCase( scanParallel );
+            if ( virtual )
+            {
+                parallelism = Runtime.getRuntime().availableProcessors();
+            }
+            else
+            {
+                parallelism = null != scanParallel ? Integer.parseInt( scanParallel ) : 1;
+            }
+        }
+        catch ( final RuntimeException e )
+        {
+            parallelism = 1;
+            virtual = false;
+        }
+        DEFAULT_PARALLELISM = parallelism;
+        DEFAULT_VIRTUAL = virtual;
+    }
+
+    private ParallelSpaceScanner()
+    {
+    }
+
+    static ExecutorService newExecutor( final int threads )
+    {
+        return Executors.newFixedThreadPool( threads, new ThreadFactory()
+        {
+            public Thread newThread( final Runnable task )
+            {
+                final Thread thread = new Thread( task, "sisu-scan-" + THREAD_ID.incrementAndGet() );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+    }
+
+    // one virtual thread per batch where the JVM supports them, otherwise a platform thread per processor
+    static ExecutorService newVirtualExecutor()
+    {
+        if ( null != NEW_VIRTUAL_THREAD_EXECUTOR )
+        {
+            try
+            {
+                return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke( null );
+            }
+            catch ( final Exception e )
+            {
+                Logs.trace( "Cannot create virtual thread executor: {}", e, null );
+            }
+        }
+        return newExecutor( Runtime.getRuntime().availableProcessors() );
+    }
+
+    // selected by -Dsisu.scan.parallel=true|virtual|<threads>; null when scanning should stay sequential
+    static ExecutorService newDefaultExecutor()
+    {
+        if ( DEFAULT_VIRTUAL )
+        {
+            return newVirtualExecutor();
+        }
+        return DEFAULT_PARALLELISM > 1 ? newExecutor( DEFAULT_PARALLELISM ) : null;
+    }
+
+    static void accept( final ClassSpace space, final ClassFinder finder, final SpaceVisitor visitor,
+                        final int threads, final boolean prefilter, final ScanReport report )
+    {
+        final ExecutorService executor = newExecutor( threads );
+        try
+        {
+            accept( space, finder, visitor, executor, prefilter, report );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    // classes are read and parsed on the executor, but replayed to the visitor on this thread in their original
+    // order, so visitors never see concurrent calls and don't need to be thread-safe
+    static void accept( final ClassSpace space, final ClassFinder finder, final SpaceVisitor visitor,
+                        final Executor executor, final boolean prefilter, final ScanReport report )
+    {
+        final boolean skipUnannotated = prefilter && AnnotationPrefilter.ENABLED;
+        final ScanReport.ReportingSpace reporting = null != report ? report.reportingSpace( space ) : null;
+
+        visitor.enterSpace( null != reporting ? reporting : space );
+
+        final InternTable strings = new InternTable();
+        final List<Future<RecordedClass[]>> batches = new ArrayList<Future<RecordedClass[]>>();
+        MappedJars.enterScan();
+        try
+        {
+            List<URL> batch = new ArrayList<URL>( BATCH_SIZE );
+            for ( final Enumeration<URL> result = finder.findClasses( space ); result.hasMoreElements(); )
+            {
+                batch.add( result.nextElement() );
+                if ( batch.size() == BATCH_SIZE )
+                {
+                    batches.add( submit( executor, new BatchReader( batch, skipUnannotated, reporting, strings ) ) );
+                    batch = new ArrayList<URL>( BATCH_SIZE );
+                }
+            }
+            if ( !batch.isEmpty() )
+            {
+                batches.add( submit( executor, new BatchReader( batch, skipUnannotated, reporting, strings ) ) );
+            }
+            for ( final Future<RecordedClass[]> future : batches )
+            {
+                for ( final RecordedClass clazz : get( future ) )
+                {
+                    if ( null == clazz )
+                    {
+                        continue; // rejected by the prefilter
+                    }
+                    if ( null != reporting )
+                    {
+                        reporting.setCurrent( reporting.entry( clazz.url ) );
+                    }
+                    final ClassVisitor cv = visitor.visitClass( clazz.url );
+                    if ( null != cv )
+                    {
+                        clazz.replay( cv );
+                    }
+                }
+            }
+            if ( null != reporting )
+            {
+                reporting.setCurrent( null );
+            }
+        }
+        finally
+        {
+            for ( final Future<RecordedClass[]> future : batches )
+            {
+                future.cancel( true ); // no-op unless the scan failed part way through
+            }
+            MappedJars.leaveScan();
+        }
+
+        visitor.leaveSpace();
+
+        if ( null != report )
+        {
+            report.flush();
+        }
+    }
+
+    private static <T> Future<T> submit( final Executor executor, final Callable<T> task )
+    {
+        final FutureTask<T> future = new FutureTask<T>( task );
+        executor.execute( future );
+        return future;
+    }
+
+    private static <T> T get( final Future<T> future )
+    {
+        try
+        {
+            return future.get();
+        }
+        catch ( final InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Interrupted while scanning", e );
+        }
+        catch ( final ExecutionException e )
+        {
+            final Throwable cause = e.getCause();
+            if ( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
+            }
+            if ( cause instanceof Error )
+            {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException( cause );
+        }
+    }
+
+    static final class BatchReader
+        implements Callable<RecordedClass[]>
+    {
+        private final List<URL> urls;
+
+        private final boolean prefilter;
+
+        private final ScanReport.ReportingSpace reporting;
+
+        private final InternTable strings;
+
+        BatchReader( final List<URL> urls, final boolean prefilter, final ScanReport.ReportingSpace reporting,
+                     final InternTable strings )
+        {
+            this.urls = urls;
+            this.prefilter = prefilter;
+            this.reporting = reporting;
+            this.strings = strings;
+        }
+
+        public RecordedClass[] call()
+        {
+            final RecordedClass[] classes = new RecordedClass[urls.size()];
+            for ( int i = 0; i < classes.length; i++ )
+            {
+                final long start = System.nanoTime();
+                final URL url = urls.get( i );
+                final byte[] bytes = prefilter || null != reporting ? MappedJars.readFully( url ) : null;
+                if ( null == bytes )
+                {
+                    classes[i] = new RecordedClass( url );
+                    MappedJars.accept( classes[i], url, strings );
+                }
+                else if ( !prefilter || AnnotationPrefilter.mayHaveAnnotations( bytes ) )
+                {
+                    classes[i] = new RecordedClass( url );
+                    MappedJars.accept( classes[i], bytes, url, strings );
+                }
+                if ( null != reporting )
+                {
+                    // per-class read and parse time, summed across worker threads
+                    reporting.entry( url ).visited( System.nanoTime() - start, null != bytes ? bytes.length : 0 );
+                }
+            }
+            return classes;
+        }
+    }
+}
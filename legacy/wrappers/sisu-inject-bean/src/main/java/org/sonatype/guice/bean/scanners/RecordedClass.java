@@ -0,0 +1,407 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.bean.scanners;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.sisu.space.AnnotationVisitor;
+import org.eclipse.sisu.space.ClassVisitor;
+
+@Deprecated
+final class RecordedClass
+    implements ClassVisitor
+{
+    private static final Class<?>[] VALUE_TYPES = { String.class, Boolean.class, Byte.class, Character.class,
+        Short.class, Integer.class, Long.class, Float.class, Double.class, boolean[].class, byte[].class,
+        char[].class, short[].class, int[].class, long[].class, float[].class, double[].class };
+
+    final URL url;
+
+    private final ClassVisitor target;
+
+    private boolean entered;
+
+    private int modifiers;
+
+    private String name;
+
+    private String _extends;
+
+    private String[] _implements;
+
+    private List<RecordedAnnotation> annotations;
+
+    private boolean left;
+
+    RecordedClass( final URL url )
+    {
+        this( url, null );
+    }
+
+    RecordedClass( final URL url, final ClassVisitor target )
+    {
+        this.url = url;
+        this.target = target;
+    }
+
+    public void enterClass( final int _modifiers, final String _name, final String superName,
+                            final String[] interfaces )
+    {
+        entered = true;
+        modifiers = _modifiers;
+        name = _name;
+        _extends = superName;
+        _implements = interfaces;
+    }
+
+    public AnnotationVisitor visitAnnotation( final String desc )
+    {
+        if ( null == annotations )
+        {
+            annotations = new ArrayList<RecordedAnnotation>( 2 );
+        }
+        final RecordedAnnotation annotation = new RecordedAnnotation( desc );
+        annotations.add( annotation );
+        return annotation;
+    }
+
+    public void leaveClass()
+    {
+        left = true;
+        if ( null != target )
+        {
+            replay( target ); // recording complete, now pass it on
+        }
+    }
+
+    void replay( final ClassVisitor cv )
+    {
+        if ( entered )
+        {
+            cv.enterClass( modifiers, name, _extends, _implements );
+        }
+        if ( null != annotations )
+        {
+            for ( final RecordedAnnotation annotation : annotations )
+            {
+                annotation.replay( cv );
+            }
+        }
+        if ( left )
+        {
+            cv.leaveClass();
+        }
+    }
+
+    boolean isComplete()
+    {
+        return left;
+    }
+
+    void writeTo( final DataOutput out )
+        throws IOException
+    {
+        out.writeBoolean( entered );
+        if ( entered )
+        {
+            out.writeInt( modifiers );
+            out.writeUTF( name );
+            writeNullable( out, _extends );
+            out.writeShort( null != _implements ? _implements.length : -1 );
+            if ( null != _implements )
+            {
+                for ( final String i : _implements )
+                {
+                    out.writeUTF( i );
+                }
+            }
+        }
+        out.writeShort( null != annotations ? annotations.size() : 0 );
+        if ( null != annotations )
+        {
+            for ( final RecordedAnnotation annotation : annotations )
+            {
+                annotation.writeTo( out );
+            }
+        }
+        out.writeBoolean( left );
+    }
+
+    static RecordedClass readFrom( final DataInput in )
+        throws IOException
+    {
+        final RecordedClass clazz = new RecordedClass( null );
+        clazz.entered = in.readBoolean();
+        if ( clazz.entered )
+        {
+            clazz.modifiers = in.readInt();
+            clazz.name = in.readUTF();
+            clazz._extends = readNullable( in );
+            final int numInterfaces = in.readShort();
+            if ( numInterfaces >= 0 )
+            {
+                clazz._implements = new String[numInterfaces];
+                for ( int i = 0; i < numInterfaces; i++ )
+                {
+                    clazz._implements[i] = in.readUTF();
+                }
+            }
+        }
+        final int numAnnotations = in.readShort();
+        if ( numAnnotations > 0 )
+        {
+            clazz.annotations = new ArrayList<RecordedAnnotation>( numAnnotations );
+            for ( int i = 0; i < numAnnotations; i++ )
+            {
+                clazz.annotations.add( RecordedAnnotation.readFrom( in ) );
+            }
+        }
+        clazz.left = in.readBoolean();
+        return clazz;
+    }
+
+    static void writeNullable( final DataOutput out, final String value )
+        throws IOException
+    {
+        out.writeBoolean( null != value );
+        if ( null != value )
+        {
+            out.writeUTF( value );
+        }
+    }
+
+    static String readNullable( final DataInput in )
+        throws IOException
+    {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    static boolean isSupported( final Object value )
+    {
+        return tagOf( value ) >= 0;
+    }
+
+    private static int tagOf( final Object value )
+    {
+        final Class<?> type = null != value ? value.getClass() : null;
+        for ( int tag = 0; tag < VALUE_TYPES.length; tag++ )
+        {
+            if ( VALUE_TYPES[tag] == type )
+            {
+                return tag;
+            }
+        }
+        return -1;
+    }
+
+    static void writeValue( final DataOutput out, final Object value )
+        throws IOException
+    {
+        final int tag = tagOf( value );
+        if ( tag < 0 )
+        {
+            throw new IOException( "Unsupported annotation value: " + value );
+        }
+        out.writeByte( tag );
+        if ( VALUE_TYPES[tag].isArray() )
+        {
+            final int length = Array.getLength( value );
+            out.writeInt( length );
+            for ( int i = 0; i < length; i++ )
+            {
+                writeScalar( out, Array.get( value, i ) );
+            }
+        }
+        else
+        {
+            writeScalar( out, value );
+        }
+    }
+
+    static Object readValue( final DataInput in )
+        throws IOException
+    {
+        final int tag = in.readByte();
+        if ( tag < 0 || tag >= VALUE_TYPES.length )
+        {
+            throw new IOException( "Corrupt annotation value tag: " + tag );
+        }
+        final Class<?> type = VALUE_TYPES[tag];
+        if ( type.isArray() )
+        {
+            final Class<?> componentType = type.getComponentType();
+            final Object array = Array.newInstance( componentType, in.readInt() );
+            for ( int i = 0, length = Array.getLength( array ); i < length; i++ )
+            {
+                Array.set( array, i, readScalar( in, componentType ) );
+            }
+            return array;
+        }
+        return readScalar( in, type );
+    }
+
+    private static void writeScalar( final DataOutput out, final Object value )
+        throws IOException
+    {
+        if ( value instanceof String )
+        {
+            out.writeUTF( (String) value );
+        }
+        else if ( value instanceof Boolean )
+        {
+            out.writeBoolean( ( (Boolean) value ).booleanValue() );
+        }
+        else if ( value instanceof Character )
+        {
+            out.writeChar( ( (Character) value ).charValue() );
+        }
+        else if ( value instanceof Float )
+        {
+            out.writeFloat( ( (Float) value ).floatValue() );
+        }
+        else if ( value instanceof Double )
+        {
+            out.writeDouble( ( (Double) value ).doubleValue() );
+        }
+        else
+        {
+            out.writeLong( ( (Number) value ).longValue() );
+        }
+    }
+
+    private static Object readScalar( final DataInput in, final Class<?> type )
+        throws IOException
+    {
+        if ( String.class == type )
+        {
+            return in.readUTF();
+        }
+        if ( Boolean.class == type || boolean.class == type )
+        {
+            return Boolean.valueOf( in.readBoolean() );
+        }
+        if ( Character.class == type || char.class == type )
+        {
+            return Character.valueOf( in.readChar() );
+        }
+        if ( Float.class == type || float.class == type )
+        {
+            return Float.valueOf( in.readFloat() );
+        }
+        if ( Double.class == type || double.class == type )
+        {
+            return Double.valueOf( in.readDouble() );
+        }
+        final long value = in.readLong();
+        if ( Byte.class == type || byte.class == type )
+        {
+            return Byte.valueOf( (byte) value );
+        }
+        if ( Short.class == type || short.class == type )
+        {
+            return Short.valueOf( (short) value );
+        }
+        if ( Integer.class == type || int.class == type )
+        {
+            return Integer.valueOf( (int) value );
+        }
+        return Long.valueOf( value );
+    }
+
+    static final class RecordedAnnotation
+        implements AnnotationVisitor
+    {
+        private final String desc;
+
+        private final List<Object> elements = new ArrayList<Object>( 4 );
+
+        private boolean left;
+
+        RecordedAnnotation( final String desc )
+        {
+            this.desc = desc;
+        }
+
+        public void enterAnnotation()
+        {
+            // replayed when visited
+        }
+
+        public void visitElement( final String name, final Object value )
+        {
+            elements.add( name );
+            elements.add( value );
+        }
+
+        public void leaveAnnotation()
+        {
+            left = true;
+        }
+
+        void replay( final ClassVisitor cv )
+        {
+            final AnnotationVisitor av = cv.visitAnnotation( desc );
+            if ( null != av )
+            {
+                av.enterAnnotation();
+                for ( int i = 0, size = elements.size(); i < size; i += 2 )
+                {
+                    av.visitElement( (String) elements.get( i ), elements.get( i + 1 ) );
+                }
+                if ( left )
+                {
+                    av.leaveAnnotation();
+                }
+            }
+        }
+
+        void writeTo( final DataOutput out )
+            throws IOException
+        {
+            out.writeUTF( desc );
+            int supported = 0;
+            for ( int i = 1, size = elements.size(); i < size; i += 2 )
+            {
+                supported += isSupported( elements.get( i ) ) ? 1 : 0;
+            }
+            out.writeShort( supported );
+            for ( int i = 0, size = elements.size(); i < size; i += 2 )
+            {
+                final Object value = elements.get( i + 1 );
+                if ( isSupported( value ) ) // drop just this element, the rest of the class can still be cached
+                {
+                    writeNullable( out, (String) elements.get( i ) );
+                    writeValue( out, value );
+                }
+            }
+            out.writeBoolean( left );
+        }
+
+        static RecordedAnnotation readFrom( final DataInput in )
+            throws IOException
+        {
+            final RecordedAnnotation annotation = new RecordedAnnotation( in.readUTF() );
+            for ( int i = 0, size = in.readShort(); i < size; i++ )
+            {
+                annotation.elements.add( readNullable( in ) );
+                annotation.elements.add( readValue( in ) );
+            }
+            annotation.left = in.readBoolean();
+            return annotation;
+        }
+    }
+}
@@ -0,0 +1,368 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.bean.scanners;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.eclipse.sisu.inject.Logs;
+import org.eclipse.sisu.space.ClassSpace;
+import org.eclipse.sisu.space.ClassVisitor;
+import org.eclipse.sisu.space.SpaceVisitor;
+
+@Deprecated
+public final class ScanCache
+{
+    private static final int MAGIC = 0x53495355; // "SISU"
+
+    private static final int VERSION = 2;
+
+    private static final long MAX_UNUSED_MILLIS = 30L * 24 * 60 * 60 * 1000;
+
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+
+    private static final int MIN_END_RECORD_SIZE = 22;
+
+    private static final JarRecord NOT_CACHEABLE = new JarRecord( null, null );
+
+    private final File directory;
+
+    public ScanCache( final File directory )
+    {
+        this.directory = directory;
+    }
+
+    public static File directory()
+    {
+        try
+        {
+            final String cacheDir = System.getProperty( "sisu.scan.cache.dir" );
+            return null != cacheDir && cacheDir.trim().length() > 0 ? new File( cacheDir ) : null;
+        }
+        catch ( final RuntimeException e )
+        {
+            return null;
+        }
+    }
+
+    public SpaceVisitor wrap( final SpaceVisitor visitor )
+    {
+        return new CachingVisitor( visitor );
+    }
+
+    final class CachingVisitor
+        implements SpaceVisitor
+    {
+        private final Map<String, JarRecord> jars = new HashMap<String, JarRecord>();
+
+        private final SpaceVisitor delegate;
+
+        CachingVisitor( final SpaceVisitor delegate )
+        {
+            this.delegate = delegate;
+        }
+
+        public void enterSpace( final ClassSpace space )
+        {
+            delegate.enterSpace( space );
+        }
+
+        public ClassVisitor visitClass( final URL url )
+        {
+            final String spec = url.toString();
+            final int separator = spec.indexOf( "!/" );
+            if ( separator < 0 || !spec.startsWith( "jar:file:" ) )
+            {
+                return delegate.visitClass( url ); // only jars are cached
+            }
+            final String jarSpec = spec.substring( 4, separator );
+            JarRecord jar = jars.get( jarSpec );
+            if ( null == jar )
+            {
+                jars.put( jarSpec, jar = load( jarSpec ) );
+            }
+            if ( NOT_CACHEABLE == jar )
+            {
+                return delegate.visitClass( url );
+            }
+            final String entry = spec.substring( separator + 2 );
+            final RecordedClass cached = jar.classes.get( entry );
+            if ( null != cached )
+            {
+                final ClassVisitor cv = delegate.visitClass( url );
+                if ( null != cv )
+                {
+                    cached.replay( cv );
+                }
+                return null; // skip the ASM pass
+            }
+            final RecordedClass recording = new RecordedClass( url, delegate.visitClass( url ) );
+            jar.classes.put( entry, recording );
+            jar.dirty = true;
+            return recording;
+        }
+
+        public void leaveSpace()
+        {
+            final Set<File> inUse = new HashSet<File>();
+            for ( final JarRecord jar : jars.values() )
+            {
+                if ( NOT_CACHEABLE != jar )
+                {
+                    if ( jar.dirty )
+                    {
+                        save( jar );
+                    }
+                    inUse.add( jar.cacheFile );
+                }
+            }
+            evict( inUse );
+            delegate.leaveSpace();
+        }
+    }
+
+    JarRecord load( final String jarSpec )
+    {
+        final File jarFile;
+        try
+        {
+            jarFile = new File( new URI( jarSpec ) );
+        }
+        catch ( final Exception e )
+        {
+            return NOT_CACHEABLE;
+        }
+        if ( !jarFile.isFile() )
+        {
+            return NOT_CACHEABLE;
+        }
+
+        final JarRecord jar = new JarRecord( jarFile, cacheFile( jarFile ) );
+        if ( jar.cacheFile.isFile() )
+        {
+            try
+            {
+                read( jar );
+                jar.cacheFile.setLastModified( System.currentTimeMillis() ); // keep it from being evicted
+            }
+            catch ( final Exception e )
+            {
+                Logs.trace( "Ignoring scan cache: {}", jar.cacheFile, e );
+                jar.classes.clear();
+            }
+        }
+        return jar;
+    }
+
+    private File cacheFile( final File jarFile )
+    {
+        final String path = jarFile.getAbsolutePath();
+        return new File( directory, jarFile.getName() + '-' + Integer.toHexString( path.hashCode() ) + ".scan" );
+    }
+
+    private static void read( final JarRecord jar )
+        throws IOException
+    {
+        // plain stream rather than a mapping, so the file can be replaced as soon as it is closed
+        final DataInputStream in =
+            new DataInputStream( new BufferedInputStream( new FileInputStream( jar.cacheFile ) ) );
+        try
+        {
+            if ( MAGIC != in.readInt() || VERSION != in.readInt() )
+            {
+                return;
+            }
+            if ( !jar.jarFile.getAbsolutePath().equals( in.readUTF() ) || jar.jarFile.length() != in.readLong()
+                || jar.jarFile.lastModified() != in.readLong() || jar.checksum() != in.readLong() )
+            {
+                return; // jar has changed since the cache was written
+            }
+            for ( int i = 0, size = in.readInt(); i < size; i++ )
+            {
+                jar.classes.put( in.readUTF(), RecordedClass.readFrom( in ) );
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    private void save( final JarRecord jar )
+    {
+        File tmpFile = null;
+        try
+        {
+            directory.mkdirs();
+            tmpFile = File.createTempFile( jar.cacheFile.getName(), ".tmp", directory );
+            final DataOutputStream out =
+                new DataOutputStream( new BufferedOutputStream( new FileOutputStream( tmpFile ) ) );
+            try
+            {
+                out.writeInt( MAGIC );
+                out.writeInt( VERSION );
+                out.writeUTF( jar.jarFile.getAbsolutePath() );
+                out.writeLong( jar.jarFile.length() );
+                out.writeLong( jar.jarFile.lastModified() );
+                out.writeLong( jar.checksum() );
+                int complete = 0;
+                for ( final RecordedClass clazz : jar.classes.values() )
+                {
+                    complete += clazz.isComplete() ? 1 : 0;
+                }
+                out.writeInt( complete );
+                for ( final Entry<String, RecordedClass> e : jar.classes.entrySet() )
+                {
+                    if ( e.getValue().isComplete() ) // skip classes whose parse failed part way
+                    {
+                        out.writeUTF( e.getKey() );
+                        e.getValue().writeTo( out );
+                    }
+                }
+            }
+            finally
+            {
+                out.close();
+            }
+            if ( !tmpFile.renameTo( jar.cacheFile ) )
+            {
+                jar.cacheFile.delete();
+                if ( !tmpFile.renameTo( jar.cacheFile ) )
+                {
+                    throw new IOException( "Cannot replace " + jar.cacheFile );
+                }
+            }
+            tmpFile = null;
+        }
+        catch ( final IOException e )
+        {
+            Logs.trace( "Problem saving scan cache: {}", jar.cacheFile, e );
+        }
+        finally
+        {
+            if ( null != tmpFile )
+            {
+                tmpFile.delete();
+            }
+        }
+    }
+
+    private void evict( final Set<File> inUse )
+    {
+        final File[] files = directory.listFiles();
+        if ( null == files )
+        {
+            return;
+        }
+        final long cutoff = System.currentTimeMillis() - MAX_UNUSED_MILLIS;
+        for ( final File f : files )
+        {
+            if ( f.getName().endsWith( ".scan" ) && !inUse.contains( f ) && f.lastModified() < cutoff )
+            {
+                f.delete(); // not read or written for a while, most likely its jar has gone
+            }
+        }
+    }
+
+    static final class JarRecord
+    {
+        final Map<String, RecordedClass> classes = new LinkedHashMap<String, RecordedClass>();
+
+        final File jarFile;
+
+        final File cacheFile;
+
+        boolean dirty;
+
+        private long checksum = -1;
+
+        JarRecord( final File jarFile, final File cacheFile )
+        {
+            this.jarFile = jarFile;
+            this.cacheFile = cacheFile;
+        }
+
+        long checksum()
+            throws IOException
+        {
+            if ( checksum < 0 )
+            {
+                // only the central directory: it lists the size and CRC of every entry, so is enough to spot changes
+                final RandomAccessFile file = new RandomAccessFile( jarFile, "r" );
+                try
+                {
+                    final long[] bounds = locateCentralDirectory( file );
+                    final CRC32 crc = new CRC32();
+                    final byte[] chunk = new byte[8192];
+                    file.seek( bounds[0] );
+                    for ( long remaining = bounds[1]; remaining > 0; )
+                    {
+                        final int n = file.read( chunk, 0, (int) Math.min( chunk.length, remaining ) );
+                        if ( n < 0 )
+                        {
+                            throw new IOException( "Truncated central directory: " + jarFile );
+                        }
+                        crc.update( chunk, 0, n );
+                        remaining -= n;
+                    }
+                    checksum = crc.getValue();
+                }
+                finally
+                {
+                    file.close();
+                }
+            }
+            return checksum;
+        }
+
+        private long[] locateCentralDirectory( final RandomAccessFile file )
+            throws IOException
+        {
+            final long length = file.length();
+            final int window = (int) Math.min( length, MIN_END_RECORD_SIZE + 0xFFFF ); // allow for a zip comment
+            final byte[] tail = new byte[window];
+            file.seek( length - window );
+            file.readFully( tail );
+            for ( int i = window - MIN_END_RECORD_SIZE; i >= 0; i-- )
+            {
+                if ( END_OF_CENTRAL_DIRECTORY == readInt( tail, i ) )
+                {
+                    final long size = readInt( tail, i + 12 ) & 0xFFFFFFFFL;
+                    final long offset = readInt( tail, i + 16 ) & 0xFFFFFFFFL;
+                    return new long[] { offset, size };
+                }
+            }
+            throw new IOException( "Missing central directory: " + jarFile );
+        }
+
+        private static int readInt( final byte[] buf, final int i )
+        {
+            return buf[i] & 0xFF | ( buf[i + 1] & 0xFF ) << 8 | ( buf[i + 2] & 0xFF ) << 16
+                | ( buf[i + 3] & 0xFF ) << 24;
+        }
+    }
+}
@@ -0,0 +1,495 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.bean.scanners;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.sisu.inject.DeferredClass;
+import org.eclipse.sisu.inject.Logs;
+import org.eclipse.sisu.space.ClassSpace;
+import org.eclipse.sisu.space.ClassVisitor;
+import org.eclipse.sisu.space.SpaceVisitor;
+import org.eclipse.sisu.space.URLClassSpace;
+import org.sonatype.guice.bean.reflect.IndexedClassSpace;
+
+@Deprecated
+public final class ScanReport
+{
+    private static final ScanReport GLOBAL;
+
+    static
+    {
+        final File file = file();
+        GLOBAL = null != file ? new ScanReport( file ) : null;
+    }
+
+    private static final Comparator<Entry> SLOWEST_FIRST = new Comparator<Entry>()
+    {
+        public int compare( final Entry lhs, final Entry rhs )
+        {
+            final long l = lhs.getElapsedNanos(), r = rhs.getElapsedNanos();
+            return l < r ? 1 : l > r ? -1 : lhs.url.compareTo( rhs.url );
+        }
+    };
+
+    private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+    private final File file;
+
+    public ScanReport()
+    {
+        this( null );
+    }
+
+    ScanReport( final File file )
+    {
+        this.file = file;
+    }
+
+    public static File file()
+    {
+        try
+        {
+            final String reportFile = System.getProperty( "sisu.scan.report" );
+            return null != reportFile && reportFile.trim().length() > 0 ? new File( reportFile ) : null;
+        }
+        catch ( final RuntimeException e )
+        {
+            return null;
+        }
+    }
+
+    public static ScanReport global()
+    {
+        return GLOBAL;
+    }
+
+    public SpaceVisitor wrap( final SpaceVisitor visitor, final boolean prefilter )
+    {
+        return wrap( visitor, prefilter, new InternTable() );
+    }
+
+    SpaceVisitor wrap( final SpaceVisitor visitor, final boolean prefilter, final InternTable strings )
+    {
+        return new ReportingVisitor( visitor, prefilter && AnnotationPrefilter.ENABLED, strings );
+    }
+
+    public ClassSpace wrap( final ClassSpace space )
+    {
+        return reportingSpace( space );
+    }
+
+    public synchronized List<Entry> getEntries()
+    {
+        final List<Entry> result = new ArrayList<Entry>( entries.values() );
+        Collections.sort( result, SLOWEST_FIRST );
+        return result;
+    }
+
+    public String toJSON()
+    {
+        final StringWriter buf = new StringWriter();
+        try
+        {
+            writeJSON( buf );
+        }
+        catch ( final IOException e )
+        {
+            throw new IllegalStateException( e ); // can't happen with an in-memory writer
+        }
+        return buf.toString();
+    }
+
+    public void writeJSON( final Writer writer )
+        throws IOException
+    {
+        writer.write( "{\"entries\":[" );
+        boolean first = true;
+        for ( final Entry entry : getEntries() )
+        {
+            writer.write( first ? "\n  " : ",\n  " );
+            entry.writeJSON( writer );
+            first = false;
+        }
+        writer.write( "\n]}\n" );
+    }
+
+    @Override
+    public String toString()
+    {
+        return toJSON();
+    }
+
+    public synchronized void flush()
+    {
+        if ( null != file )
+        {
+            try
+            {
+                final Writer writer = new OutputStreamWriter( new FileOutputStream( file ), "UTF-8" );
+                try
+                {
+                    writeJSON( writer );
+                }
+                finally
+                {
+                    writer.close();
+                }
+            }
+            catch ( final IOException e )
+            {
+                Logs.warn( "Problem writing scan report: {}", file, e );
+            }
+        }
+    }
+
+    ReportingSpace reportingSpace( final ClassSpace space )
+    {
+        return new ReportingSpace( space );
+    }
+
+    synchronized Entry entry( final String url )
+    {
+        Entry entry = entries.get( url );
+        if ( null == entry )
+        {
+            entry = new Entry( url );
+            entries.put( url, entry );
+        }
+        return entry;
+    }
+
+    static String container( final URL url, final String[] roots )
+    {
+        final String path = url.toString();
+        if ( path.startsWith( "jar:" ) )
+        {
+            final int i = path.lastIndexOf( "!/" );
+            return i > 0 ? path.substring( 4, i ) : path;
+        }
+        String container = null;
+        for ( final String root : roots )
+        {
+            if ( path.startsWith( root ) && ( null == container || root.length() > container.length() ) )
+            {
+                container = root;
+            }
+        }
+        return null != container ? container : path.substring( 0, path.lastIndexOf( '/' ) + 1 );
+    }
+
+    private static void writeString( final Writer writer, final String text )
+        throws IOException
+    {
+        writer.write( '"' );
+        for ( int i = 0, length = text.length(); i < length; i++ )
+        {
+            final char c = text.charAt( i );
+            if ( c == '"' || c == '\\' )
+            {
+                writer.write( '\\' );
+                writer.write( c );
+            }
+            else if ( c < 0x20 )
+            {
+                writer.write( String.format( "\\u%04x", Integer.valueOf( c ) ) );
+            }
+            else
+            {
+                writer.write( c );
+            }
+        }
+        writer.write( '"' );
+    }
+
+    public static final class Entry
+    {
+        final String url;
+
+        private long elapsedNanos;
+
+        private long bytesRead;
+
+        private int classesVisited;
+
+        private int qualifiedTypes;
+
+        private int classesLoaded;
+
+        Entry( final String url )
+        {
+            this.url = url;
+        }
+
+        public String getURL()
+        {
+            return url;
+        }
+
+        public synchronized long getElapsedNanos()
+        {
+            return elapsedNanos;
+        }
+
+        public synchronized long getBytesRead()
+        {
+            return bytesRead;
+        }
+
+        public synchronized int getClassesVisited()
+        {
+            return classesVisited;
+        }
+
+        // types handed out by the space while scanning, whether loaded straight away or deferred
+        public synchronized int getQualifiedTypes()
+        {
+            return qualifiedTypes;
+        }
+
+        public synchronized int getClassesLoaded()
+        {
+            return classesLoaded;
+        }
+
+        synchronized void visited( final long nanos, final int bytes )
+        {
+            elapsedNanos += nanos;
+            bytesRead += bytes;
+            classesVisited++;
+        }
+
+        synchronized void found( final boolean loaded )
+        {
+            qualifiedTypes++;
+            if ( loaded )
+            {
+                classesLoaded++;
+            }
+        }
+
+        synchronized void writeJSON( final Writer writer )
+            throws IOException
+        {
+            writer.write( "{\"url\":" );
+            writeString( writer, url );
+            writer.write( ",\"elapsedNanos\":" + elapsedNanos );
+            writer.write( ",\"bytesRead\":" + bytesRead );
+            writer.write( ",\"classesVisited\":" + classesVisited );
+            writer.write( ",\"qualifiedTypes\":" + qualifiedTypes );
+            writer.write( ",\"classesLoaded\":" + classesLoaded + '}' );
+        }
+
+        @Override
+        public String toString()
+        {
+            final StringWriter buf = new StringWriter();
+            try
+            {
+                writeJSON( buf );
+            }
+            catch ( final IOException e )
+            {
+                throw new IllegalStateException( e ); // can't happen with an in-memory writer
+            }
+            return buf.toString();
+        }
+    }
+
+    // attributes classes handed out by the space to the container currently being scanned, or else to wherever
+    // the class resource comes from
+    final class ReportingSpace
+        implements ClassSpace
+    {
+        private final ClassSpace space;
+
+        private final String[] roots;
+
+        private Entry current;
+
+        ReportingSpace( final ClassSpace space )
+        {
+            this.space = space;
+
+            final URL[] urls;
+            if ( space instanceof URLClassSpace )
+            {
+                urls = ( (URLClassSpace) space ).getURLs();
+            }
+            else if ( space instanceof IndexedClassSpace )
+            {
+                urls = ( (IndexedClassSpace) space ).getURLs();
+            }
+            else
+            {
+                urls = new URL[0];
+            }
+            roots = new String[urls.length];
+            for ( int i = 0; i < urls.length; i++ )
+            {
+                roots[i] = urls[i].toString();
+            }
+        }
+
+        Entry entry( final URL url )
+        {
+            return ScanReport.this.entry( container( url, roots ) );
+        }
+
+        void setCurrent( final Entry entry )
+        {
+            current = entry;
+        }
+
+        public Class<?> loadClass( final String name )
+        {
+            final Class<?> clazz = space.loadClass( name );
+            found( name, true );
+            return clazz;
+        }
+
+        public DeferredClass<?> deferLoadClass( final String name )
+        {
+            final DeferredClass<?> clazz = space.deferLoadClass( name );
+            found( name, false );
+            return clazz;
+        }
+
+        public URL getResource( final String name )
+        {
+            return space.getResource( name );
+        }
+
+        public Enumeration<URL> getResources( final String name )
+        {
+            return space.getResources( name );
+        }
+
+        public Enumeration<URL> findEntries( final String path, final String glob, final boolean recurse )
+        {
+            return space.findEntries( path, glob, recurse );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return space.hashCode();
+        }
+
+        @Override
+        public boolean equals( final Object rhs )
+        {
+            if ( this == rhs )
+            {
+                return true;
+            }
+            if ( rhs instanceof ReportingSpace )
+            {
+                return space.equals( ( (ReportingSpace) rhs ).space );
+            }
+            return false;
+        }
+
+        @Override
+        public String toString()
+        {
+            return space.toString();
+        }
+
+        private void found( final String name, final boolean loaded )
+        {
+            Entry entry = current;
+            if ( null == entry )
+            {
+                final URL url = space.getResource( name.replace( '.', '/' ) + ".class" );
+                entry = ScanReport.this.entry( null != url ? container( url, roots ) : space.toString() );
+            }
+            entry.found( loaded );
+        }
+    }
+
+    final class ReportingVisitor
+        implements SpaceVisitor
+    {
+        private final SpaceVisitor delegate;
+
+        private final boolean prefilter;
+
+        private final InternTable strings;
+
+        private ReportingSpace space;
+
+        ReportingVisitor( final SpaceVisitor delegate, final boolean prefilter, final InternTable strings )
+        {
+            this.delegate = delegate;
+            this.prefilter = prefilter;
+            this.strings = strings;
+        }
+
+        public void enterSpace( final ClassSpace _space )
+        {
+            space = new ReportingSpace( _space );
+            delegate.enterSpace( space );
+        }
+
+        public ClassVisitor visitClass( final URL url )
+        {
+            final long start = System.nanoTime();
+            final Entry entry = space.entry( url );
+            space.setCurrent( entry );
+            try
+            {
+                // read the bytes ourselves so they can be counted, then hand them to the visitor
+                byte[] bytes = prefilter ? MappedJars.readFully( url ) : null;
+                if ( null == bytes || AnnotationPrefilter.mayHaveAnnotations( bytes ) )
+                {
+                    final ClassVisitor cv = delegate.visitClass( url );
+                    if ( null != cv )
+                    {
+                        if ( null == bytes )
+                        {
+                            bytes = MappedJars.readFully( url );
+                        }
+                        if ( null != bytes )
+                        {
+                            MappedJars.accept( cv, bytes, url, strings );
+                        }
+                    }
+                }
+                entry.visited( System.nanoTime() - start, null != bytes ? bytes.length : 0 );
+            }
+            finally
+            {
+                space.setCurrent( null );
+            }
+            return null;
+        }
+
+        public void leaveSpace()
+        {
+            delegate.leaveSpace();
+            flush();
+        }
+    }
+}
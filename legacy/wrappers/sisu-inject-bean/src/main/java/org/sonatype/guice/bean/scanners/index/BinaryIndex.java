@@ -0,0 +1,454 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.bean.scanners.index;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.eclipse.sisu.space.AnnotationVisitor;
+import org.eclipse.sisu.space.ClassSpace;
+import org.eclipse.sisu.space.ClassVisitor;
+import org.eclipse.sisu.space.SpaceScanner;
+import org.eclipse.sisu.space.Streams;
+
+@Deprecated
+public final class BinaryIndex
+{
+    public static final String NAME = "javax.inject.Named.idx";
+
+    public static final String PATH = "META-INF/sisu/" + NAME;
+
+    private static final int MAGIC = 0x53494458; // SIDX
+
+    private static final int VERSION = 1;
+
+    // entry must be loaded and bound eagerly, just like entries from the text index
+    private static final int EAGER = 0x01;
+
+    private static final String[] EAGER_ANNOTATIONS = { "Ljavax/enterprise/inject/Typed;", "Lorg/eclipse/sisu/Typed;",
+        "Lorg/eclipse/sisu/EagerSingleton;", "Lorg/sonatype/inject/EagerSingleton;" };
+
+    private static final String[] EAGER_ROLES = { "com.google.inject.Module", "com.google.inject.Provider",
+        "javax.inject.Provider", "org.eclipse.sisu.Mediator", "org.sonatype.inject.Mediator" };
+
+    private static final String[] NO_ROLES = {};
+
+    private final ByteBuffer buf;
+
+    private final int strings;
+
+    private final int entries;
+
+    private final int size;
+
+    private BinaryIndex( final ByteBuffer buf )
+        throws IOException
+    {
+        this.buf = buf;
+        if ( buf.getInt( 0 ) != MAGIC || buf.getInt( 4 ) != VERSION )
+        {
+            throw new IOException( "Unsupported index format" );
+        }
+        strings = 12;
+        entries = strings + 4 * buf.getInt( 8 ) + 4;
+        size = buf.getInt( entries - 4 );
+    }
+
+    public static BinaryIndex open( final URL url )
+        throws IOException
+    {
+        if ( "file".equals( url.getProtocol() ) )
+        {
+            final RandomAccessFile file = new RandomAccessFile( toFile( url ), "r" );
+            try
+            {
+                final FileChannel channel = file.getChannel();
+                return new BinaryIndex( channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() ) );
+            }
+            finally
+            {
+                file.close(); // mapping stays valid after close
+            }
+        }
+
+        final InputStream in = Streams.open( url );
+        try
+        {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final byte[] chunk = new byte[8192];
+            for ( int n; ( n = in.read( chunk ) ) > 0; )
+            {
+                bytes.write( chunk, 0, n );
+            }
+            return new BinaryIndex( ByteBuffer.wrap( bytes.toByteArray() ) );
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public String getClassName( final int i )
+    {
+        return string( buf.getInt( entry( i ) ) );
+    }
+
+    public String getQualifier( final int i )
+    {
+        final int q = buf.getInt( entry( i ) + 4 );
+        return q < 0 ? null : string( q );
+    }
+
+    public boolean isDeferrable( final int i )
+    {
+        return ( buf.getInt( entry( i ) + 8 ) & EAGER ) == 0;
+    }
+
+    public String[] getRoles( final int i )
+    {
+        final int pos = entry( i ) + 12;
+        final int count = buf.getInt( pos );
+        if ( count == 0 )
+        {
+            return NO_ROLES;
+        }
+        final String[] roles = new String[count];
+        for ( int r = 0; r < count; r++ )
+        {
+            roles[r] = string( buf.getInt( pos + 4 + 4 * r ) );
+        }
+        return roles;
+    }
+
+    public int indexOf( final String className )
+    {
+        // entries are sorted by class name
+        int lo = 0, hi = size - 1;
+        while ( lo <= hi )
+        {
+            final int mid = lo + hi >>> 1;
+            final int cmp = getClassName( mid ).compareTo( className );
+            if ( cmp < 0 )
+            {
+                lo = mid + 1;
+            }
+            else if ( cmp > 0 )
+            {
+                hi = mid - 1;
+            }
+            else
+            {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int entry( final int i )
+    {
+        return buf.getInt( entries + 4 * i );
+    }
+
+    private String string( final int index )
+    {
+        final int pos = buf.getInt( strings + 4 * index );
+        final byte[] utf = new byte[buf.getShort( pos ) & 0xFFFF];
+        for ( int i = 0; i < utf.length; i++ )
+        {
+            utf[i] = buf.get( pos + 2 + i );
+        }
+        try
+        {
+            return new String( utf, "UTF-8" );
+        }
+        catch ( final IOException e )
+        {
+            throw new IllegalStateException( e ); // UTF-8 is always supported
+        }
+    }
+
+    static void write( final ClassSpace space, final Collection<String> classNames, final File file )
+        throws IOException
+    {
+        final Map<String, String[]> supertypes = new HashMap<String, String[]>();
+        final TreeMap<String, ClassInfo> infos = new TreeMap<String, ClassInfo>();
+        final Set<String> table = new TreeSet<String>();
+
+        for ( final String name : classNames )
+        {
+            if ( !infos.containsKey( name ) )
+            {
+                final ClassInfo info = ClassInfo.examine( space, name, supertypes );
+                infos.put( name, info );
+                table.add( name );
+                if ( null != info.qualifier )
+                {
+                    table.add( info.qualifier );
+                }
+                table.addAll( info.roles );
+            }
+        }
+
+        final List<String> sortedStrings = new ArrayList<String>( table );
+        final Map<String, Integer> stringIds = new HashMap<String, Integer>();
+        for ( int i = 0; i < sortedStrings.size(); i++ )
+        {
+            stringIds.put( sortedStrings.get( i ), Integer.valueOf( i ) );
+        }
+
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream( body );
+
+        final int headerSize = 12 + 4 * sortedStrings.size() + 4 + 4 * infos.size();
+
+        final int[] stringOffsets = new int[sortedStrings.size()];
+        for ( int i = 0; i < stringOffsets.length; i++ )
+        {
+            stringOffsets[i] = headerSize + out.size();
+            final byte[] utf = sortedStrings.get( i ).getBytes( "UTF-8" );
+            out.writeShort( utf.length );
+            out.write( utf );
+        }
+
+        final int[] entryOffsets = new int[infos.size()];
+        int e = 0;
+        for ( final ClassInfo info : infos.values() )
+        {
+            entryOffsets[e++] = headerSize + out.size();
+            out.writeInt( stringIds.get( info.name ).intValue() );
+            out.writeInt( null != info.qualifier ? stringIds.get( info.qualifier ).intValue() : -1 );
+            out.writeInt( info.eager ? EAGER : 0 );
+            out.writeInt( info.roles.size() );
+            for ( final String role : info.roles )
+            {
+                out.writeInt( stringIds.get( role ).intValue() );
+            }
+        }
+        out.flush();
+
+        final File parent = file.getParentFile();
+        if ( !parent.isDirectory() && !parent.mkdirs() )
+        {
+            throw new IOException( "Error creating: " + parent );
+        }
+
+        final DataOutputStream header = new DataOutputStream( new FileOutputStream( file ) );
+        try
+        {
+            header.writeInt( MAGIC );
+            header.writeInt( VERSION );
+            header.writeInt( stringOffsets.length );
+            for ( final int offset : stringOffsets )
+            {
+                header.writeInt( offset );
+            }
+            header.writeInt( entryOffsets.length );
+            for ( final int offset : entryOffsets )
+            {
+                header.writeInt( offset );
+            }
+            body.writeTo( header );
+        }
+        finally
+        {
+            header.close();
+        }
+    }
+
+    private static File toFile( final URL url )
+        throws IOException
+    {
+        try
+        {
+            return new File( url.toURI() );
+        }
+        catch ( final Exception e )
+        {
+            throw new IOException( "Cannot map: " + url );
+        }
+    }
+
+    static final class ClassInfo
+        implements ClassVisitor, AnnotationVisitor
+    {
+        final String name;
+
+        final Set<String> roles = new LinkedHashSet<String>();
+
+        String qualifier;
+
+        boolean eager;
+
+        private String[] directSupertypes = NO_ROLES;
+
+        private String annotation;
+
+        private String jsr330Name;
+
+        private String guiceName;
+
+        private ClassInfo( final String name )
+        {
+            this.name = name;
+        }
+
+        static ClassInfo examine( final ClassSpace space, final String name, final Map<String, String[]> supertypes )
+        {
+            final ClassInfo info = new ClassInfo( name );
+            final URL url = space.getResource( name.replace( '.', '/' ) + ".class" );
+            if ( null == url )
+            {
+                info.eager = true;
+                return info;
+            }
+
+            SpaceScanner.accept( info, url );
+
+            final String named = null != info.jsr330Name ? info.jsr330Name : info.guiceName;
+            if ( null != named && named.length() > 0 )
+            {
+                info.qualifier = "default".equals( named ) ? null : named;
+            }
+            else
+            {
+                final int start = Math.max( name.lastIndexOf( '.' ), name.lastIndexOf( '$' ) ) + 1;
+                final String simpleName = name.substring( start );
+                if ( simpleName.length() == 0 || Character.isDigit( simpleName.charAt( 0 ) ) )
+                {
+                    info.eager = true; // anonymous or local class, leave it to the normal binder
+                }
+                info.qualifier = simpleName.startsWith( "Default" ) ? null : name;
+            }
+
+            info.eager |= !collectRoles( space, info.directSupertypes, info.roles, supertypes );
+            for ( final String role : EAGER_ROLES )
+            {
+                info.eager |= info.roles.contains( role );
+            }
+            return info;
+        }
+
+        public void enterClass( final int modifiers, final String _name, final String _extends,
+                                final String[] _implements )
+        {
+            final List<String> direct = new ArrayList<String>( Arrays.asList( _implements ) );
+            if ( null != _extends )
+            {
+                direct.add( 0, _extends );
+            }
+            directSupertypes = direct.toArray( new String[direct.size()] );
+        }
+
+        public AnnotationVisitor visitAnnotation( final String desc )
+        {
+            for ( final String eagerDesc : EAGER_ANNOTATIONS )
+            {
+                eager |= eagerDesc.equals( desc );
+            }
+            if ( "Ljavax/inject/Named;".equals( desc ) )
+            {
+                jsr330Name = "";
+            }
+            else if ( "Lcom/google/inject/name/Named;".equals( desc ) )
+            {
+                guiceName = "";
+            }
+            else
+            {
+                return null;
+            }
+            annotation = desc;
+            return this;
+        }
+
+        public void enterAnnotation()
+        {
+            // no-op
+        }
+
+        public void visitElement( final String element, final Object value )
+        {
+            if ( "value".equals( element ) && value instanceof String )
+            {
+                if ( "Ljavax/inject/Named;".equals( annotation ) )
+                {
+                    jsr330Name = (String) value;
+                }
+                else
+                {
+                    guiceName = (String) value;
+                }
+            }
+        }
+
+        public void leaveAnnotation()
+        {
+            annotation = null;
+        }
+
+        public void leaveClass()
+        {
+            // no-op
+        }
+
+        private static boolean collectRoles( final ClassSpace space, final String[] types, final Set<String> roles,
+                                             final Map<String, String[]> supertypes )
+        {
+            boolean complete = true;
+            for ( final String type : types )
+            {
+                if ( "java/lang/Object".equals( type ) || !roles.add( type.replace( '/', '.' ) ) )
+                {
+                    continue;
+                }
+                String[] direct = supertypes.get( type );
+                if ( null == direct )
+                {
+                    final URL url = space.getResource( type + ".class" );
+                    if ( null == url )
+                    {
+                        complete = false; // can't see the whole hierarchy, so leave it to the normal binder
+                        continue;
+                    }
+                    final ClassInfo info = new ClassInfo( type );
+                    SpaceScanner.accept( info, url );
+                    direct = info.directSupertypes;
+                    supertypes.put( type, direct );
+                }
+                complete &= collectRoles( space, direct, roles, supertypes );
+            }
+            return complete;
+        }
+    }
+}
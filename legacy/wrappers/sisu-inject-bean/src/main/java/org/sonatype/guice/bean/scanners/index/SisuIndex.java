@@ -10,17 +10,61 @@
  *******************************************************************************/
 package org.sonatype.guice.bean.scanners.index;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import org.eclipse.sisu.inject.Logs;
+import org.eclipse.sisu.space.ClassFinder;
+import org.eclipse.sisu.space.DefaultClassFinder;
+import org.eclipse.sisu.space.SpaceScanner;
 import org.sonatype.guice.bean.reflect.ClassSpace;
+import org.sonatype.guice.bean.scanners.AnnotationPrefilter;
+import org.sonatype.guice.bean.scanners.ClassSpaceScanner;
 
 @Deprecated
 public final class SisuIndex
 {
+    private static final String NAMED = "javax.inject.Named";
+
+    private static final String NAMED_INDEX = "META-INF/sisu/" + NAMED;
+
+    private static final ClassFinder FINDER = new DefaultClassFinder();
+
+    private final File targetDirectory;
+
     private final org.eclipse.sisu.space.SisuIndex delegate;
 
+    private boolean incremental;
+
+    private boolean binaryIndex;
+
+    private int parallelism = 1;
+
     public SisuIndex( final File targetDirectory )
     {
+        this.targetDirectory = targetDirectory;
         delegate = new org.eclipse.sisu.space.SisuIndex( targetDirectory );
     }
 
@@ -29,8 +73,353 @@ public final class SisuIndex
         org.eclipse.sisu.space.SisuIndex.main( args );
     }
 
+    public void setIncremental( final boolean incremental )
+    {
+        this.incremental = incremental;
+    }
+
+    public void setParallelism( final int parallelism )
+    {
+        this.parallelism = parallelism;
+    }
+
+    public void setBinaryIndex( final boolean binaryIndex )
+    {
+        this.binaryIndex = binaryIndex;
+    }
+
     public void index( final ClassSpace space )
     {
-        delegate.index( space );
+        if ( !incremental && parallelism <= 1 )
+        {
+            delegate.index( space );
+        }
+        else
+        {
+            scan( space );
+        }
+        if ( binaryIndex )
+        {
+            writeBinaryIndex( space );
+        }
+    }
+
+    private void scan( final ClassSpace space )
+    {
+        final Indexer indexer = new Indexer( targetDirectory );
+        final ClassFinder finder = incremental ? indexer.changedClasses( space ) : FINDER;
+        try
+        {
+            if ( parallelism > 1 )
+            {
+                final ExecutorService executor = Executors.newFixedThreadPool( parallelism );
+                try
+                {
+                    ClassSpaceScanner.accept( space, finder, indexer, executor, true, null );
+                }
+                finally
+                {
+                    executor.shutdownNow();
+                }
+            }
+            else
+            {
+                new SpaceScanner( space, finder ).accept( AnnotationPrefilter.wrap( indexer ) );
+            }
+        }
+        finally
+        {
+            indexer.flush();
+        }
+    }
+
+    private void writeBinaryIndex( final ClassSpace space )
+    {
+        final File indexFile = new File( targetDirectory, NAMED_INDEX );
+        final File binaryFile = new File( targetDirectory, BinaryIndex.PATH );
+        try
+        {
+            if ( indexFile.isFile() )
+            {
+                BinaryIndex.write( space, readIndex( indexFile ), binaryFile );
+            }
+            else
+            {
+                binaryFile.delete();
+            }
+        }
+        catch ( final IOException e )
+        {
+            Logs.warn( "Problem writing: {}", binaryFile, e );
+        }
+    }
+
+    static Set<String> readIndex( final File indexFile )
+    {
+        final Set<String> names = new TreeSet<String>();
+        try
+        {
+            final BufferedReader reader =
+                new BufferedReader( new InputStreamReader( new FileInputStream( indexFile ), "UTF-8" ) );
+            try
+            {
+                for ( String line = reader.readLine(); line != null; line = reader.readLine() )
+                {
+                    names.add( line );
+                }
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
+        catch ( final IOException e )
+        {
+            Logs.trace( "Cannot read: {} cause: {}", indexFile, e );
+        }
+        return names;
+    }
+
+    static final class Indexer
+        extends org.eclipse.sisu.space.SisuIndex
+    {
+        private final File indexFile;
+
+        // kept beside the target directory, so the stamps are not packaged with the index
+        private final File stampsFile;
+
+        private final Properties stamps = new Properties();
+
+        private Set<String> retained;
+
+        private boolean dirty;
+
+        Indexer( final File targetDirectory )
+        {
+            super( targetDirectory );
+            indexFile = new File( targetDirectory, NAMED_INDEX );
+            stampsFile = new File( targetDirectory.getAbsolutePath() + ".sisu-stamps" );
+        }
+
+        // only classes whose size or timestamp differ from the last incremental run are re-examined; entries for
+        // unchanged classes are carried over, while entries for changed or deleted classes are dropped and re-added
+        // if still qualified
+        ClassFinder changedClasses( final ClassSpace space )
+        {
+            if ( !( space instanceof org.eclipse.sisu.space.URLClassSpace ) )
+            {
+                return FINDER; // no way to map entries back to class names
+            }
+            final Properties previous = readStamps( stampsFile ); // empty on the first run, so all classes change
+
+            final URL[] roots = ( (org.eclipse.sisu.space.URLClassSpace) space ).getURLs();
+            final Map<String, String> jarStamps = new HashMap<String, String>();
+
+            final Set<String> unchanged = new HashSet<String>();
+            final List<URL> changed = new ArrayList<URL>();
+
+            final Enumeration<URL> e = FINDER.findClasses( space );
+            while ( e.hasMoreElements() )
+            {
+                final URL url = e.nextElement();
+                final String name = className( url, roots );
+                final String stamp = null != name ? stamp( url, jarStamps ) : null;
+                if ( null != stamp )
+                {
+                    stamps.setProperty( name, stamp );
+                }
+                if ( null != stamp && stamp.equals( previous.getProperty( name ) ) )
+                {
+                    unchanged.add( name );
+                }
+                else
+                {
+                    changed.add( url );
+                }
+            }
+
+            final Set<String> indexed = readIndex( indexFile );
+            retained = new TreeSet<String>();
+            for ( final String name : indexed )
+            {
+                if ( unchanged.contains( name ) )
+                {
+                    retained.add( name );
+                }
+            }
+            dirty = !changed.isEmpty() || retained.size() < indexed.size() || !stamps.equals( previous );
+
+            Logs.trace( "Incremental index: {} changed, {} unchanged", changed.size(), unchanged.size() );
+
+            return new ClassFinder()
+            {
+                public Enumeration<URL> findClasses( final org.eclipse.sisu.space.ClassSpace _space )
+                {
+                    return Collections.enumeration( changed );
+                }
+            };
+        }
+
+        void flush()
+        {
+            if ( dirty && null != retained )
+            {
+                writeRetained(); // any newly qualified classes are merged in by flushIndex
+            }
+            flushIndex();
+            if ( dirty )
+            {
+                writeStamps();
+            }
+        }
+
+        @Override
+        protected Reader getReader( final String path )
+            throws IOException
+        {
+            if ( null != retained && NAMED_INDEX.equals( path ) )
+            {
+                final StringBuilder buf = new StringBuilder();
+                for ( final String name : retained )
+                {
+                    buf.append( name ).append( '\n' );
+                }
+                return new StringReader( buf.toString() );
+            }
+            return super.getReader( path );
+        }
+
+        private void writeRetained()
+        {
+            if ( retained.isEmpty() )
+            {
+                indexFile.delete();
+                return;
+            }
+            try
+            {
+                final Writer writer = getWriter( NAMED_INDEX );
+                try
+                {
+                    for ( final String name : retained )
+                    {
+                        writer.write( name );
+                        writer.write( '\n' );
+                    }
+                }
+                finally
+                {
+                    writer.close();
+                }
+            }
+            catch ( final IOException e )
+            {
+                Logs.warn( "Problem writing: {}", indexFile, e );
+            }
+        }
+
+        private void writeStamps()
+        {
+            try
+            {
+                final OutputStream out = new FileOutputStream( stampsFile );
+                try
+                {
+                    stamps.store( out, null );
+                }
+                finally
+                {
+                    out.close();
+                }
+            }
+            catch ( final IOException e )
+            {
+                Logs.warn( "Problem writing: {}", stampsFile, e );
+            }
+        }
+
+        private static Properties readStamps( final File file )
+        {
+            final Properties stamps = new Properties();
+            if ( file.isFile() )
+            {
+                try
+                {
+                    final InputStream in = new FileInputStream( file );
+                    try
+                    {
+                        stamps.load( in );
+                    }
+                    finally
+                    {
+                        in.close();
+                    }
+                }
+                catch ( final IOException e )
+                {
+                    Logs.trace( "Cannot read: {} cause: {}", file, e );
+                    stamps.clear();
+                }
+            }
+            return stamps;
+        }
+
+        private static String className( final URL url, final URL[] roots )
+        {
+            final String location = url.toString();
+            final int jarSep = location.indexOf( "!/" );
+            String path = null;
+            if ( jarSep > 0 )
+            {
+                path = location.substring( jarSep + 2 );
+            }
+            else
+            {
+                for ( final URL root : roots )
+                {
+                    final String prefix = root.toString();
+                    if ( prefix.endsWith( "/" ) && location.startsWith( prefix ) )
+                    {
+                        path = location.substring( prefix.length() );
+                        break;
+                    }
+                }
+            }
+            return null != path && path.endsWith( ".class" )
+                ? path.substring( 0, path.length() - 6 ).replace( '/', '.' ) : null;
+        }
+
+        private static String stamp( final URL url, final Map<String, String> jarStamps )
+        {
+            try
+            {
+                final String location = url.toString();
+                if ( location.startsWith( "jar:file:" ) )
+                {
+                    final String jar = location.substring( 4, location.indexOf( "!/" ) );
+                    String stamp = jarStamps.get( jar );
+                    if ( null == stamp )
+                    {
+                        stamp = stamp( new File( new URL( jar ).toURI() ) );
+                        jarStamps.put( jar, stamp );
+                    }
+                    return stamp;
+                }
+                if ( "file".equals( url.getProtocol() ) )
+                {
+                    return stamp( new File( url.toURI() ) );
+                }
+            }
+            catch ( final Exception e )
+            {
+                Logs.trace( "Cannot stamp: {} cause: {}", url, e );
+            }
+            return null; // unknown, so always re-examine
+        }
+
+        private static String stamp( final File file )
+        {
+            return file.length() + ":" + file.lastModified();
+        }
     }
 }
@@ -0,0 +1,322 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.bean.binders;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.inject.Named;
+
+import org.sonatype.guice.bean.locators.DefaultBeanLocator;
+import org.sonatype.guice.bean.locators.MutableBeanLocator;
+import org.sonatype.guice.bean.reflect.ClassSpace;
+import org.sonatype.inject.BeanEntry;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Inject;
+import com.google.inject.Key;
+import com.google.inject.Module;
+import com.google.inject.name.Names;
+
+import junit.framework.TestCase;
+
+public class IncrementalScanningTest
+    extends TestCase
+{
+    public interface Bean
+    {
+    }
+
+    @Named( "A" )
+    public static class BeanA
+        implements Bean
+    {
+    }
+
+    @Named( "B" )
+    public static class BeanB
+        implements Bean
+    {
+    }
+
+    @Named( "C" )
+    public static class BeanC
+        implements Bean
+    {
+        // optional as other tests scan the whole test class path
+        @Inject( optional = true )
+        @Named( "greeting" )
+        String greeting;
+
+        @Override
+        public String toString()
+        {
+            return greeting;
+        }
+    }
+
+    File classesDir;
+
+    File otherDir;
+
+    @Override
+    protected void setUp()
+        throws IOException
+    {
+        classesDir = File.createTempFile( "incremental", "classes" );
+        classesDir.delete();
+        classesDir.mkdir();
+        otherDir = new File( classesDir.getPath() + "-other" );
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        delete( classesDir );
+        delete( otherDir );
+    }
+
+    public void testIncrementalRescan()
+        throws Exception
+    {
+        final MutableBeanLocator locator = new DefaultBeanLocator();
+        final IncrementalScanning scanning = SpaceModule.incremental( locator );
+
+        final URL[] path = { classesDir.toURI().toURL() };
+        final ClassLoader loader = new URLClassLoader( path, getClass().getClassLoader() );
+
+        copyClass( BeanA.class );
+
+        IncrementalScanning.Delta delta = scanning.rescan( loader, path );
+        assertEquals( 1, delta.getAdded().size() );
+        assertEquals( 0, delta.getRemoved().size() );
+        assertEquals( 1, delta.getChangedURLs().size() );
+        delta.apply();
+
+        assertEquals( "[A]", names( locator, Bean.class ).toString() );
+
+        delta = scanning.rescan( loader, path );
+        assertTrue( delta.isEmpty() );
+
+        copyClass( BeanB.class );
+
+        delta = scanning.rescan( loader, path );
+        assertEquals( 1, delta.getAdded().size() );
+        assertEquals( 1, delta.getRemoved().size() );
+        delta.apply();
+
+        assertEquals( "[A, B]", names( locator, Bean.class ).toString() );
+
+        delta = scanning.rescan( loader, new URL[0] );
+        assertEquals( 0, delta.getAdded().size() );
+        assertEquals( 1, delta.getRemoved().size() );
+        assertTrue( delta.getChangedURLs().isEmpty() );
+        delta.apply();
+
+        assertEquals( "[]", names( locator, Bean.class ).toString() );
+    }
+
+    public void testFailedRescanKeepsPreviousState()
+        throws Exception
+    {
+        final URL[] path = { classesDir.toURI().toURL(), otherDir.toURI().toURL() };
+        final ClassLoader loader = new URLClassLoader( path, getClass().getClassLoader() );
+
+        final boolean[] broken = { false };
+        final IncrementalScanning scanning =
+            new IncrementalScanning( new DefaultBeanLocator(), new IncrementalScanning.SpaceModuleFactory()
+            {
+                public Module create( final ClassSpace space )
+                {
+                    if ( broken[0] )
+                    {
+                        throw new IllegalStateException( "broken" );
+                    }
+                    return new SpaceModule( space );
+                }
+            } );
+
+        copyClass( BeanA.class );
+        otherDir.mkdir();
+
+        assertEquals( 2, scanning.rescan( loader, path ).getAdded().size() );
+
+        new File( otherDir, "marker" ).createNewFile();
+        broken[0] = true;
+        try
+        {
+            scanning.rescan( loader, path );
+            fail( "Expected IllegalStateException" );
+        }
+        catch ( final IllegalStateException e )
+        {
+            // expected
+        }
+
+        broken[0] = false;
+        final IncrementalScanning.Delta delta = scanning.rescan( loader, path );
+        assertEquals( 1, delta.getAdded().size() );
+        assertEquals( 1, delta.getRemoved().size() );
+        assertEquals( Collections.singletonList( path[1] ), delta.getChangedURLs() );
+    }
+
+    public void testSharedBindingsAndNewLoader()
+        throws Exception
+    {
+        final MutableBeanLocator locator = new DefaultBeanLocator();
+        final IncrementalScanning scanning = SpaceModule.incremental( locator, new AbstractModule()
+        {
+            @Override
+            protected void configure()
+            {
+                bindConstant().annotatedWith( Names.named( "greeting" ) ).to( "Hello" );
+            }
+        } );
+
+        // the role lives in one entry and the dependent implementation in another
+        copyClass( Bean.class, classesDir );
+        copyClass( BeanA.class, classesDir );
+        copyClass( BeanC.class, otherDir );
+
+        final URL[] path = { classesDir.toURI().toURL(), otherDir.toURI().toURL() };
+
+        ClassLoader loader = new URLClassLoader( path, hidingTestTypes() );
+        IncrementalScanning.Delta delta = scanning.rescan( loader, path );
+        assertEquals( 3, delta.getAdded().size() );
+        delta.apply();
+
+        final Key<String> greetingKey = Key.get( String.class, Names.named( "greeting" ) );
+        assertEquals( 1, count( locator.locate( greetingKey ) ) );
+        assertEquals( "[A, C]", names( locator, loader.loadClass( Bean.class.getName() ) ).toString() );
+
+        // a changed entry usually comes with a new loader
+        new File( otherDir, "marker" ).createNewFile();
+        loader = new URLClassLoader( path, hidingTestTypes() );
+
+        delta = scanning.rescan( loader, path );
+        assertEquals( 2, delta.getAdded().size() );
+        assertEquals( 2, delta.getRemoved().size() );
+        assertEquals( 2, delta.getChangedURLs().size() );
+        delta.apply();
+
+        assertEquals( 1, count( locator.locate( greetingKey ) ) );
+        assertEquals( "[A, C]", names( locator, loader.loadClass( Bean.class.getName() ) ).toString() );
+
+        final List<String> greetings = new ArrayList<String>();
+        for ( final BeanEntry<?, ?> entry : locator.locate( Key.get( loader.loadClass( BeanC.class.getName() ) ) ) )
+        {
+            greetings.add( entry.getValue().toString() );
+        }
+        assertEquals( Collections.singletonList( "Hello" ), greetings );
+
+        // the same loader only republishes what changed
+        new File( otherDir, "marker" ).delete();
+        delta = scanning.rescan( loader, path );
+        assertEquals( Collections.singletonList( path[1] ), delta.getChangedURLs() );
+    }
+
+    private ClassLoader hidingTestTypes()
+    {
+        final String prefix = getClass().getName() + '$';
+        return new ClassLoader( getClass().getClassLoader() )
+        {
+            @Override
+            protected Class<?> loadClass( final String name, final boolean resolve )
+                throws ClassNotFoundException
+            {
+                if ( name.startsWith( prefix ) )
+                {
+                    throw new ClassNotFoundException( name );
+                }
+                return super.loadClass( name, resolve );
+            }
+        };
+    }
+
+    private static int count( final Iterable<?> entries )
+    {
+        int count = 0;
+        for ( final Iterator<?> itr = entries.iterator(); itr.hasNext(); itr.next() )
+        {
+            count++;
+        }
+        return count;
+    }
+
+    private static List<String> names( final MutableBeanLocator locator, final Class<?> role )
+    {
+        final List<String> names = new ArrayList<String>();
+        for ( final BeanEntry<?, ?> entry : locator.locate( Key.get( role, Named.class ) ) )
+        {
+            names.add( ( (Named) entry.getKey() ).value() );
+        }
+        Collections.sort( names );
+        return names;
+    }
+
+    private void copyClass( final Class<?> clazz )
+        throws IOException
+    {
+        copyClass( clazz, classesDir );
+    }
+
+    private static void copyClass( final Class<?> clazz, final File dir )
+        throws IOException
+    {
+        final String name = clazz.getName().replace( '.', '/' ) + ".class";
+        final File file = new File( dir, name );
+        file.getParentFile().mkdirs();
+
+        final InputStream in = clazz.getClassLoader().getResourceAsStream( name );
+        try
+        {
+            final OutputStream out = new FileOutputStream( file );
+            try
+            {
+                final byte[] buf = new byte[8192];
+                for ( int n; ( n = in.read( buf ) ) > 0; )
+                {
+                    out.write( buf, 0, n );
+                }
+            }
+            finally
+            {
+                out.close();
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    private static void delete( final File file )
+    {
+        final File[] files = file.listFiles();
+        if ( null != files )
+        {
+            for ( final File f : files )
+            {
+                delete( f );
+            }
+        }
+        file.delete();
+    }
+}
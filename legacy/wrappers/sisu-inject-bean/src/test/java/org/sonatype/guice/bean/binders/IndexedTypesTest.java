@@ -0,0 +1,240 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.bean.binders;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.inject.Named;
+
+import org.eclipse.sisu.Typed;
+import org.sonatype.guice.bean.locators.BeanLocator;
+import org.sonatype.guice.bean.reflect.URLClassSpace;
+import org.sonatype.guice.bean.scanners.index.BinaryIndex;
+import org.sonatype.guice.bean.scanners.index.SisuIndex;
+import org.sonatype.inject.BeanEntry;
+import org.sonatype.inject.BeanScanning;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.TypeLiteral;
+import com.google.inject.name.Names;
+
+import junit.framework.TestCase;
+
+public class IndexedTypesTest
+    extends TestCase
+{
+    public interface Bean
+    {
+    }
+
+    @Named( "A" )
+    public static class BeanA
+        implements Bean
+    {
+    }
+
+    @Named( "C" )
+    public static class BeanC
+        extends BeanA
+    {
+    }
+
+    @Named
+    public static class DefaultBean
+        implements Bean
+    {
+    }
+
+    public interface Handler<T>
+    {
+    }
+
+    @Named( "S" )
+    public static class StringHandler
+        implements Handler<String>
+    {
+    }
+
+    @Named( "I" )
+    public static class IntegerHandler
+        implements Handler<Integer>
+    {
+    }
+
+    @Named( "T" )
+    @Typed( Bean.class )
+    public static class TypedBean
+        implements Bean, Runnable
+    {
+        public void run()
+        {
+        }
+    }
+
+    @Named
+    public static class IndexedModule
+        extends AbstractModule
+    {
+        @Override
+        protected void configure()
+        {
+            bind( String.class ).annotatedWith( Names.named( "module" ) ).toInstance( "M" );
+        }
+    }
+
+    File classesDir;
+
+    @Override
+    protected void setUp()
+        throws IOException
+    {
+        classesDir = File.createTempFile( "indexed", "types" );
+        classesDir.delete();
+        classesDir.mkdir();
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        delete( classesDir );
+    }
+
+    public void testBinaryIndex()
+        throws Exception
+    {
+        copyClass( Bean.class );
+        copyClass( BeanA.class );
+        copyClass( BeanC.class );
+        copyClass( DefaultBean.class );
+        copyClass( Handler.class );
+        copyClass( StringHandler.class );
+        copyClass( IntegerHandler.class );
+        copyClass( TypedBean.class );
+        copyClass( IndexedModule.class );
+
+        final URL[] path = { classesDir.toURI().toURL() };
+        final URLClassSpace space = new URLClassSpace( new URLClassLoader( path, getClass().getClassLoader() ), path );
+
+        final SisuIndex sisuIndex = new SisuIndex( classesDir );
+        sisuIndex.setBinaryIndex( true );
+        sisuIndex.index( space );
+
+        final BinaryIndex index = BinaryIndex.open( new File( classesDir, BinaryIndex.PATH ).toURI().toURL() );
+        assertEquals( 7, index.size() );
+
+        final int c = index.indexOf( BeanC.class.getName() );
+        assertEquals( "C", index.getQualifier( c ) );
+        assertTrue( index.isDeferrable( c ) );
+        assertEquals( 2, index.getRoles( c ).length );
+        assertNull( index.getQualifier( index.indexOf( DefaultBean.class.getName() ) ) );
+        assertFalse( index.isDeferrable( index.indexOf( IndexedModule.class.getName() ) ) );
+        assertFalse( index.isDeferrable( index.indexOf( TypedBean.class.getName() ) ) );
+        assertEquals( -1, index.indexOf( Bean.class.getName() ) );
+
+        final Injector scanned = Guice.createInjector( new WireModule( new SpaceModule( space, BeanScanning.ON ) ) );
+        final Injector indexed = Guice.createInjector( new WireModule( new SpaceModule( space, BeanScanning.INDEX ) ) );
+
+        final BeanLocator scannedLocator = scanned.getInstance( BeanLocator.class );
+        final BeanLocator indexedLocator = indexed.getInstance( BeanLocator.class );
+
+        final List<Key<?>> keys = new ArrayList<Key<?>>();
+        keys.add( Key.get( Object.class, Named.class ) );
+        keys.add( Key.get( Bean.class, Named.class ) );
+        keys.add( Key.get( BeanA.class, Named.class ) );
+        keys.add( Key.get( BeanC.class, Named.class ) );
+        keys.add( Key.get( DefaultBean.class, Named.class ) );
+        keys.add( Key.get( new TypeLiteral<Handler<String>>()
+        {
+        }, Named.class ) );
+        keys.add( Key.get( Handler.class, Named.class ) );
+        keys.add( Key.get( Runnable.class, Named.class ) );
+        keys.add( Key.get( TypedBean.class, Named.class ) );
+
+        // concrete types also see their own unqualified binding, @Typed beans are only visible as their typed roles
+        final String[] expected = { "[A, C, I, S, default]", "[A, C, T, default]", "[C, default]", "[default]",
+            "[default]", "[S]", "[I, S]", "[]", "[default]" };
+
+        for ( int i = 0; i < keys.size(); i++ )
+        {
+            assertEquals( keys.get( i ).toString(), expected[i], names( scannedLocator, keys.get( i ) ).toString() );
+            assertEquals( keys.get( i ).toString(), expected[i], names( indexedLocator, keys.get( i ) ).toString() );
+        }
+
+        assertEquals( "M", indexed.getInstance( Key.get( String.class, Names.named( "module" ) ) ) );
+    }
+
+    private static List<String> names( final BeanLocator locator, final Key<?> key )
+    {
+        final List<String> names = new ArrayList<String>();
+        for ( final BeanEntry<?, ?> entry : locator.locate( key ) )
+        {
+            names.add( ( (Named) entry.getKey() ).value() );
+            assertNotNull( entry.getValue() );
+        }
+        Collections.sort( names );
+        return names;
+    }
+
+    private void copyClass( final Class<?> clazz )
+        throws IOException
+    {
+        final String name = clazz.getName().replace( '.', '/' ) + ".class";
+        final File file = new File( classesDir, name );
+        file.getParentFile().mkdirs();
+
+        final InputStream in = clazz.getClassLoader().getResourceAsStream( name );
+        try
+        {
+            final OutputStream out = new FileOutputStream( file );
+            try
+            {
+                final byte[] buf = new byte[8192];
+                for ( int n; ( n = in.read( buf ) ) > 0; )
+                {
+                    out.write( buf, 0, n );
+                }
+            }
+            finally
+            {
+                out.close();
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    private static void delete( final File file )
+    {
+        final File[] files = file.listFiles();
+        if ( null != files )
+        {
+            for ( final File f : files )
+            {
+                delete( f );
+            }
+        }
+        file.delete();
+    }
+}
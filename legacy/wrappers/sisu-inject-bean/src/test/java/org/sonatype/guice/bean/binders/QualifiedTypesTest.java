@@ -18,6 +18,10 @@ import java.lang.annotation.RetentionPolicy;
 import java.util.EventListener;
 import java.util.RandomAccess;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.enterprise.inject.Typed;
 import javax.inject.Inject;
@@ -285,6 +289,32 @@ public class QualifiedTypesTest
         checkLegacyBinding( Callable.class, LegacyCallable.class );
     }
 
+    public void testExecutorScanning()
+    {
+        final AtomicInteger batches = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool( 2 );
+        try
+        {
+            final ClassSpace space = new URLClassSpace( getClass().getClassLoader() );
+            injector = Guice.createInjector( new SpaceModule( space ).with( new Executor()
+            {
+                public void execute( final Runnable task )
+                {
+                    batches.incrementAndGet();
+                    executor.execute( task );
+                }
+            } ) );
+            locator = injector.getInstance( BeanLocator.class );
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        assertTrue( batches.get() > 0 );
+        testQualifiedBindings();
+    }
+
     @ImplementedBy( AImpl.class )
     interface A
     {
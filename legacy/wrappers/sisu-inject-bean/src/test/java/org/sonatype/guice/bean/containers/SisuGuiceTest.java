@@ -0,0 +1,258 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.bean.containers;
+
+import java.util.concurrent.Callable;
+
+import javax.inject.Inject;
+
+import org.eclipse.sisu.inject.BeanLocator;
+import org.eclipse.sisu.inject.DefaultBeanLocator;
+import org.eclipse.sisu.inject.DefaultRankingFunction;
+import org.eclipse.sisu.inject.InjectorBindings;
+import org.eclipse.sisu.inject.MutableBeanLocator;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.ConfigurationException;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Scopes;
+import com.google.inject.name.Names;
+
+import junit.framework.TestCase;
+
+public class SisuGuiceTest
+    extends TestCase
+{
+    interface Bean
+    {
+    }
+
+    static class BeanImpl
+        implements Bean
+    {
+    }
+
+    static class BeanImpl2
+        implements Bean
+    {
+    }
+
+    static class Client
+    {
+        @Inject
+        Bean bean;
+    }
+
+    static Injector injector( final Class<? extends Bean> impl )
+    {
+        return Guice.createInjector( new AbstractModule()
+        {
+            @Override
+            protected void configure()
+            {
+                bind( Bean.class ).to( impl ).in( Scopes.SINGLETON );
+            }
+        } );
+    }
+
+    @Override
+    protected void tearDown()
+        throws Exception
+    {
+        SisuGuice.setBeanLocator( null );
+        SisuGuice.setReuseInjectionPlans( false );
+    }
+
+    public void testCachedLookup()
+    {
+        final MutableBeanLocator locator = new DefaultBeanLocator();
+        final Injector injector1 = injector( BeanImpl.class );
+        final Injector injector2 = injector( BeanImpl2.class );
+
+        assertNull( SisuGuice.lookup( Key.get( Bean.class ) ) );
+
+        SisuGuice.setBeanLocator( locator );
+        assertSame( locator, SisuGuice.getBeanLocator() );
+
+        assertNull( SisuGuice.lookup( Key.get( Bean.class ) ) );
+
+        locator.add( new InjectorBindings( injector1, new DefaultRankingFunction( 1 ) ) );
+
+        final Bean bean = SisuGuice.lookup( Key.get( Bean.class ) );
+        assertTrue( bean instanceof BeanImpl );
+        assertSame( bean, SisuGuice.lookup( Key.get( Bean.class ) ) );
+
+        locator.add( new InjectorBindings( injector2, new DefaultRankingFunction( 2 ) ) );
+
+        assertTrue( SisuGuice.lookup( Key.get( Bean.class ) ) instanceof BeanImpl2 );
+
+        locator.remove( new InjectorBindings( injector2, null ) );
+
+        assertSame( bean, SisuGuice.lookup( Key.get( Bean.class ) ) );
+
+        locator.remove( new InjectorBindings( injector1, null ) );
+
+        assertNull( SisuGuice.lookup( Key.get( Bean.class ) ) );
+        assertNull( SisuGuice.lookup( Key.get( Bean.class, Names.named( "missing" ) ) ) );
+    }
+
+    public void testLocatorPerThread()
+        throws InterruptedException
+    {
+        final MutableBeanLocator locator1 = new DefaultBeanLocator();
+        final MutableBeanLocator locator2 = new DefaultBeanLocator();
+
+        locator1.add( new InjectorBindings( injector( BeanImpl.class ), new DefaultRankingFunction( 0 ) ) );
+        locator2.add( new InjectorBindings( injector( BeanImpl2.class ), new DefaultRankingFunction( 0 ) ) );
+
+        SisuGuice.setBeanLocator( locator1 );
+
+        final Object[] result = new Object[1];
+        final Thread thread = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                SisuGuice.setBeanLocator( locator2 );
+                result[0] = SisuGuice.lookup( Key.get( Bean.class ) );
+            }
+        };
+        thread.start();
+        thread.join();
+
+        assertTrue( result[0] instanceof BeanImpl2 );
+
+        SisuGuice.setBeanLocator( locator1 );
+        assertTrue( SisuGuice.lookup( Key.get( Bean.class ) ) instanceof BeanImpl );
+    }
+
+    public void testReusedInjectionPlans()
+    {
+        final MutableBeanLocator locator = new DefaultBeanLocator();
+        locator.add( new InjectorBindings( injector( BeanImpl.class ), new DefaultRankingFunction( 1 ) ) );
+
+        SisuGuice.setBeanLocator( locator );
+        SisuGuice.setReuseInjectionPlans( true );
+
+        final Client client1 = new Client();
+        final Client client2 = new Client();
+        SisuGuice.inject( client1 );
+        SisuGuice.inject( client2 );
+
+        assertTrue( client1.bean instanceof BeanImpl );
+        assertSame( client1.bean, client2.bean );
+
+        locator.add( new InjectorBindings( injector( BeanImpl2.class ), new DefaultRankingFunction( 2 ) ) );
+
+        final Client client3 = new Client();
+        SisuGuice.inject( client3 );
+        assertTrue( client3.bean instanceof BeanImpl2 );
+
+        final Client client4 = new Client();
+        SisuGuice.enhance( injector( BeanImpl.class ) ).injectMembers( client4 );
+        assertTrue( client4.bean instanceof BeanImpl );
+    }
+
+    public void testEnhancedInjector()
+    {
+        final MutableBeanLocator locator = new DefaultBeanLocator();
+        final Injector injector = Guice.createInjector( new AbstractModule()
+        {
+            @Override
+            protected void configure()
+            {
+                bind( BeanLocator.class ).toInstance( locator );
+            }
+        } );
+
+        final Injector enhancedInjector = SisuGuice.enhance( injector );
+        assertTrue( enhancedInjector instanceof EnhancedInjector ); // no proxy needed for this Guice release
+        assertTrue( EnhancedInjector.implementsAll( Injector.class ) );
+        assertFalse( EnhancedInjector.implementsAll( Runnable.class ) );
+
+        assertSame( injector.getBinding( BeanLocator.class ), enhancedInjector.getBinding( BeanLocator.class ) );
+        assertSame( injector.getBindings(), enhancedInjector.getBindings() );
+        assertNull( enhancedInjector.getParent() );
+        try
+        {
+            enhancedInjector.getBinding( Key.get( Bean.class, Names.named( "missing" ) ) );
+            fail( "Expected ConfigurationException" );
+        }
+        catch ( final ConfigurationException e )
+        {
+            // delegated failures should not be wrapped
+        }
+        assertNull( enhancedInjector.getInstance( Bean.class ) );
+
+        locator.add( new InjectorBindings( injector( BeanImpl.class ), new DefaultRankingFunction( 1 ) ) );
+
+        final Bean bean = enhancedInjector.getInstance( Bean.class );
+        assertTrue( bean instanceof BeanImpl );
+        assertSame( bean, enhancedInjector.getInstance( Key.get( Bean.class ) ) );
+
+        locator.add( new InjectorBindings( injector( BeanImpl2.class ), new DefaultRankingFunction( 2 ) ) );
+
+        assertTrue( enhancedInjector.getInstance( Bean.class ) instanceof BeanImpl2 );
+        assertTrue( enhancedInjector.getInstance( Key.get( Bean.class ) ) instanceof BeanImpl2 );
+
+        final Client client = new Client();
+        enhancedInjector.injectMembers( client );
+        assertTrue( client.bean instanceof BeanImpl2 );
+    }
+
+    public void testContextHandle()
+        throws Exception
+    {
+        final MutableBeanLocator locator1 = new DefaultBeanLocator();
+        final MutableBeanLocator locator2 = new DefaultBeanLocator();
+
+        locator1.add( new InjectorBindings( injector( BeanImpl.class ), new DefaultRankingFunction( 0 ) ) );
+        locator2.add( new InjectorBindings( injector( BeanImpl2.class ), new DefaultRankingFunction( 0 ) ) );
+
+        assertNull( SisuGuice.context() );
+
+        final SisuGuice.Context context = SisuGuice.context( locator2 );
+        assertSame( locator2, context.getBeanLocator() );
+        assertSame( context.cache, SisuGuice.context( locator2 ).cache );
+        assertTrue( context.lookup( Key.get( Bean.class ) ) instanceof BeanImpl2 );
+        assertNull( SisuGuice.getBeanLocator() );
+
+        final Client client = new Client();
+        context.inject( client );
+        assertTrue( client.bean instanceof BeanImpl2 );
+
+        SisuGuice.setBeanLocator( locator1 );
+        assertSame( locator1, SisuGuice.context().getBeanLocator() );
+        assertSame( SisuGuice.context().cache, SisuGuice.context( locator1 ).cache );
+
+        final Object[] result = new Object[1];
+        context.run( new Runnable()
+        {
+            public void run()
+            {
+                result[0] = SisuGuice.lookup( Key.get( Bean.class ) );
+            }
+        } );
+        assertTrue( result[0] instanceof BeanImpl2 );
+        assertSame( locator1, SisuGuice.getBeanLocator() );
+
+        assertSame( locator2, context.call( new Callable<BeanLocator>()
+        {
+            public BeanLocator call()
+            {
+                return SisuGuice.getBeanLocator();
+            }
+        } ) );
+        assertTrue( SisuGuice.lookup( Key.get( Bean.class ) ) instanceof BeanImpl );
+    }
+}
@@ -13,7 +13,9 @@ package org.sonatype.guice.bean.locators;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
 
@@ -299,6 +301,75 @@ public class DefaultBeanLocatorTest
         assertFalse( i.hasNext() );
     }
 
+    @SuppressWarnings( "deprecation" )
+    public void testCachedBeans()
+    {
+        final MutableBeanLocator locator = new DefaultBeanLocator();
+
+        locator.add( parent, 0 );
+
+        final Key<Bean> key = Key.get( Bean.class, Named.class );
+
+        final Iterable<? extends Entry<Named, Bean>> roles = locator.<Named, Bean> locate( key );
+        assertSame( roles, locator.<Named, Bean> locate( key ) );
+
+        final Entry<Named, Bean> a = roles.iterator().next();
+        assertEquals( Names.named( "A" ), a.getKey() );
+        assertSame( a, locator.<Named, Bean> locate( key ).iterator().next() );
+
+        locator.add( child1, 1 );
+
+        final Iterable<? extends Entry<Named, Bean>> newRoles = locator.<Named, Bean> locate( key );
+        assertNotSame( roles, newRoles );
+
+        Iterator<? extends Entry<Named, Bean>> i;
+
+        i = newRoles.iterator();
+        assertEquals( Names.named( "default" ), i.next().getKey() );
+        assertEquals( Names.named( "M1" ), i.next().getKey() );
+        assertEquals( Names.named( "N1" ), i.next().getKey() );
+        assertEquals( Names.named( "A" ), i.next().getKey() );
+
+        locator.remove( child1 );
+
+        assertNotSame( newRoles, locator.<Named, Bean> locate( key ) );
+
+        i = locator.<Named, Bean> locate( key ).iterator();
+        assertEquals( Names.named( "A" ), i.next().getKey() );
+        assertEquals( Names.named( "-" ), i.next().getKey() );
+        assertEquals( Names.named( "Z" ), i.next().getKey() );
+        assertFalse( i.hasNext() );
+
+        locator.clear();
+
+        assertFalse( locator.<Named, Bean> locate( key ).iterator().hasNext() );
+    }
+
+    @SuppressWarnings( "deprecation" )
+    public void testLocateAll()
+    {
+        final DefaultBeanLocator locator = new DefaultBeanLocator();
+
+        locator.add( parent, 0 );
+        locator.add( child1, 1 );
+
+        final Key<Bean> namedKey = Key.get( Bean.class, Named.class );
+        final Key<Bean> markedKey = Key.get( Bean.class, Marked.class );
+        final Key<Bean> aKey = Key.get( Bean.class, Names.named( "A" ) );
+
+        final Map<Key<?>, Iterable<? extends org.sonatype.inject.BeanEntry<?, ?>>> beans =
+            locator.locateAll( Arrays.<Key<?>> asList( markedKey, namedKey, aKey, namedKey ) );
+
+        assertEquals( Arrays.asList( markedKey, namedKey, aKey ), Arrays.asList( beans.keySet().toArray() ) );
+
+        assertSame( locator.locate( namedKey ), beans.get( namedKey ) );
+        assertSame( locator.locate( markedKey ), beans.get( markedKey ) );
+
+        final Iterator<? extends Entry<?, ?>> i = beans.get( aKey ).iterator();
+        assertEquals( Names.named( "A" ), i.next().getKey() );
+        assertFalse( i.hasNext() );
+    }
+
     @SuppressWarnings( "deprecation" )
     public void testExistingInjectors()
     {
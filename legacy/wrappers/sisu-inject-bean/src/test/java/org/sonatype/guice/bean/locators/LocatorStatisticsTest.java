@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.bean.locators;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.sonatype.guice.bean.locators.DefaultBeanLocatorTest.Bean;
+import org.sonatype.guice.bean.locators.DefaultBeanLocatorTest.BeanImpl;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.name.Names;
+
+import junit.framework.TestCase;
+
+public class LocatorStatisticsTest
+    extends TestCase
+{
+    public void testStatistics()
+    {
+        final Injector injector = Guice.createInjector( new AbstractModule()
+        {
+            @Override
+            protected void configure()
+            {
+                bind( Bean.class ).annotatedWith( Names.named( "A" ) ).to( BeanImpl.class );
+            }
+        } );
+
+        final DefaultBeanLocator locator = new DefaultBeanLocator();
+        final LocatorStatistics statistics = new LocatorStatistics();
+        locator.setMetrics( statistics );
+
+        final Key<Bean> hotKey = Key.get( Bean.class, Names.named( "A" ) );
+        final Key<Bean> coldKey = Key.get( Bean.class );
+
+        locator.add( injector, 0 );
+        for ( int i = 0; i < 3; i++ )
+        {
+            assertTrue( locator.locate( hotKey ).iterator().hasNext() );
+        }
+        locator.locate( coldKey );
+        assertEquals( 0, statistics.getResolveCount() ); // nothing is resolved until the beans are iterated
+
+        final Iterator<?> i = locator.locate( hotKey ).iterator();
+        i.next();
+        assertEquals( 1, statistics.getResolveCount() );
+        assertFalse( i.hasNext() );
+        assertFalse( i.hasNext() );
+        assertEquals( 2, statistics.getResolveCount() );
+
+        locator.watch( hotKey, new WatchedBeansTest.RankingMediator(), new ArrayList<String>() );
+        locator.remove( injector );
+        locator.clear();
+
+        assertEquals( 5, statistics.getLocateCount() );
+        assertEquals( 1, statistics.getWatchCount() );
+        assertEquals( 1, statistics.getAddCount() );
+        assertEquals( 1, statistics.getRemoveCount() );
+        assertEquals( 1, statistics.getClearCount() );
+
+        final String[] hotKeys = statistics.getHotKeys();
+        assertEquals( 2, hotKeys.length );
+        assertEquals( hotKey + "=4", hotKeys[0] );
+        assertEquals( coldKey + "=1", hotKeys[1] );
+
+        assertTrue( statistics.getSlowestPublisher().endsWith( "us)" ) );
+
+        final String[] summary = statistics.getLatencySummary();
+        assertEquals( 5, summary.length );
+        assertTrue( summary[0].startsWith( "resolve count=2 " ) );
+
+        statistics.reset();
+
+        assertEquals( 0, statistics.getLocateCount() );
+        assertEquals( 0, statistics.getHotKeys().length );
+        assertNull( statistics.getSlowestPublisher() );
+
+        locator.setMetrics( null );
+        locator.locate( hotKey );
+
+        assertEquals( 0, statistics.getLocateCount() );
+    }
+
+    public void testKeyLimit()
+    {
+        final LocatorStatistics statistics = new LocatorStatistics();
+
+        final Key<Bean> firstKey = Key.get( Bean.class, Names.named( "key0" ) );
+        final Key<Bean> lateKey = Key.get( Bean.class, Names.named( "late" ) );
+        for ( int i = 0; i < LocatorStatistics.MAX_TRACKED_KEYS; i++ )
+        {
+            final Key<Bean> key = Key.get( Bean.class, Names.named( "key" + i ) );
+            statistics.located( key );
+            statistics.located( key );
+        }
+        for ( int i = 0; i < 5; i++ )
+        {
+            statistics.located( lateKey );
+            statistics.located( firstKey );
+        }
+
+        // tracked keys keep every hit, while keys seen once the table is full are only counted in aggregate
+        final String[] hotKeys = statistics.getHotKeys();
+        assertEquals( firstKey + "=7", hotKeys[0] );
+        for ( final String hotKey : hotKeys )
+        {
+            assertFalse( hotKey.startsWith( lateKey.toString() ) );
+        }
+        assertEquals( 5, statistics.getUntrackedLocateCount() );
+        assertEquals( 2 * LocatorStatistics.MAX_TRACKED_KEYS + 10, statistics.getLocateCount() );
+
+        statistics.reset();
+        statistics.located( lateKey );
+        assertEquals( lateKey + "=1", statistics.getHotKeys()[0] );
+        assertEquals( 0, statistics.getUntrackedLocateCount() );
+    }
+
+    public void testMBean()
+        throws Exception
+    {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        final DefaultBeanLocator locator = new DefaultBeanLocator();
+        final LocatorStatistics statistics = new LocatorStatistics();
+        locator.setMetrics( statistics );
+
+        final ObjectName name = statistics.register();
+        assertSame( name, statistics.register() );
+        try
+        {
+            locator.locate( Key.get( Bean.class ) );
+            assertEquals( Long.valueOf( 1 ), server.getAttribute( name, "LocateCount" ) );
+            assertEquals( 1, ( (String[]) server.getAttribute( name, "HotKeys" ) ).length );
+
+            server.invoke( name, "reset", null, null );
+            assertEquals( Long.valueOf( 0 ), server.getAttribute( name, "LocateCount" ) );
+        }
+        finally
+        {
+            statistics.unregister();
+        }
+        assertFalse( server.isRegistered( name ) );
+    }
+}
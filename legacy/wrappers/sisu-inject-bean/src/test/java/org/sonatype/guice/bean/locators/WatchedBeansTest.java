@@ -12,11 +12,15 @@
 package org.sonatype.guice.bean.locators;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import javax.inject.Named;
 
+import org.eclipse.sisu.inject.DefaultRankingFunction;
+import org.eclipse.sisu.inject.InjectorBindings;
 import org.sonatype.guice.bean.locators.DefaultBeanLocatorTest.Bean;
 import org.sonatype.guice.bean.locators.DefaultBeanLocatorTest.BeanImpl;
 import org.sonatype.guice.bean.locators.DefaultBeanLocatorTest.Marked;
@@ -171,6 +175,164 @@ public class WatchedBeansTest
         locator.remove( parent );
     }
 
+    static class DeferredExecutor
+        implements Executor
+    {
+        final List<Runnable> pending = new ArrayList<Runnable>();
+
+        public void execute( final Runnable task )
+        {
+            pending.add( task );
+        }
+
+        void runPending()
+        {
+            while ( !pending.isEmpty() )
+            {
+                pending.remove( 0 ).run();
+            }
+        }
+    }
+
+    public void testAsyncWatchedBeans()
+    {
+        final DefaultBeanLocator locator = new DefaultBeanLocator();
+        final DeferredExecutor executor = new DeferredExecutor();
+        final List<String> names = new ArrayList<String>();
+
+        locator.setMediatorExecutor( executor );
+        locator.watch( Key.get( Bean.class, Named.class ), new RankingMediator(), names );
+
+        locator.add( parent, 0 );
+        locator.add( child1, 1 );
+
+        checkNames( names );
+        assertEquals( 1, executor.pending.size() );
+
+        executor.runPending();
+
+        checkNames( names, "A", "B", "C", "X" );
+
+        locator.remove( parent );
+        locator.add( child3, 3 );
+        locator.add( parent, 2 );
+
+        checkNames( names, "A", "B", "C", "X" );
+
+        executor.runPending();
+
+        checkNames( names, "X", "Z", "A", "B", "C" );
+
+        locator.clear();
+        executor.runPending();
+
+        checkNames( names );
+
+        locator.setMediatorExecutor( null );
+        locator.watch( Key.get( Bean.class, Named.class ), new RankingMediator(), names );
+        locator.add( child1, 1 );
+
+        checkNames( names, "X", "X" ); // both watchers are now told on the caller's thread
+        assertTrue( executor.pending.isEmpty() );
+    }
+
+    public void testAsyncExecutorChange()
+    {
+        final DefaultBeanLocator locator = new DefaultBeanLocator();
+        final DeferredExecutor oldExecutor = new DeferredExecutor();
+        final DeferredExecutor newExecutor = new DeferredExecutor();
+        final List<String> names = new ArrayList<String>();
+
+        locator.setMediatorExecutor( oldExecutor );
+        locator.watch( Key.get( Bean.class, Named.class ), new RankingMediator(), names );
+
+        locator.add( parent, 0 );
+        locator.setMediatorExecutor( newExecutor );
+        locator.add( child1, 1 );
+
+        checkNames( names );
+        assertEquals( 1, newExecutor.pending.size() );
+
+        newExecutor.runPending();
+
+        checkNames( names, "A", "B", "C", "X" );
+
+        oldExecutor.runPending(); // stale drain has nothing left to deliver
+
+        checkNames( names, "A", "B", "C", "X" );
+
+        locator.remove( parent );
+
+        assertTrue( oldExecutor.pending.isEmpty() );
+
+        newExecutor.runPending();
+
+        checkNames( names, "X" );
+    }
+
+    @SuppressWarnings( { "rawtypes", "unchecked" } )
+    public void testAsyncBrokenWatcher()
+    {
+        final DefaultBeanLocator locator = new DefaultBeanLocator();
+        final DeferredExecutor executor = new DeferredExecutor();
+
+        final Object keepAlive = new Object();
+
+        final List<String> names = new ArrayList<String>();
+
+        locator.setMediatorExecutor( executor );
+        locator.add( parent, 0 );
+        locator.watch( Key.get( Bean.class, Named.class ), new BrokenMediator(), keepAlive );
+        locator.watch( Key.get( Bean.class, Named.class ), new BrokenMediator(), names );
+        locator.watch( Key.get( Bean.class, Named.class ), new RankingMediator(), names );
+
+        executor.runPending();
+
+        checkNames( names, "A", "B", "C" ); // failures are logged without stalling the queue
+
+        locator.remove( parent );
+        locator.add( child1, 1 );
+
+        executor.runPending();
+
+        checkNames( names, "X" );
+    }
+
+    public void testBatchedPublishers()
+    {
+        final DefaultBeanLocator locator = new DefaultBeanLocator();
+        final DeferredExecutor executor = new DeferredExecutor();
+        final List<String> names = new ArrayList<String>();
+
+        locator.setMediatorExecutor( executor );
+        locator.watch( Key.get( Bean.class, Named.class ), new RankingMediator(), names );
+
+        final InjectorBindings parentBindings = new InjectorBindings( parent, new DefaultRankingFunction( 0 ) );
+        final InjectorBindings child1Bindings = new InjectorBindings( child1, new DefaultRankingFunction( 1 ) );
+        final InjectorBindings child3Bindings = new InjectorBindings( child3, new DefaultRankingFunction( 3 ) );
+
+        assertTrue( locator.addAll( Arrays.asList( parentBindings, child1Bindings, child3Bindings ) ) );
+        assertFalse( locator.addAll( Arrays.asList( child1Bindings ) ) );
+
+        assertEquals( 1, executor.pending.size() );
+        executor.runPending();
+
+        checkNames( names, "A", "B", "C", "X", "Z" );
+
+        final Iterator<? extends BeanEntry<Named, Bean>> i =
+            locator.<Named, Bean> locate( Key.get( Bean.class, Named.class ) ).iterator();
+        assertEquals( "Z", i.next().getKey().value() );
+        assertEquals( "X", i.next().getKey().value() );
+        assertEquals( "A", i.next().getKey().value() );
+
+        assertTrue( locator.removeAll( Arrays.asList( parentBindings, child3Bindings ) ) );
+        assertFalse( locator.removeAll( Arrays.asList( child3Bindings ) ) );
+
+        executor.runPending();
+
+        checkNames( names, "X" );
+    }
+
     private static void checkNames( final Iterable<String> actual, final String... expected )
     {
         final Iterator<String> itr = actual.iterator();
@@ -17,8 +17,10 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.net.URLStreamHandler;
 import java.net.URLStreamHandlerFactory;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.jar.Manifest;
 
 import org.sonatype.guice.bean.reflect.barf.Handler;
@@ -240,4 +242,83 @@ public class URLClassSpaceTest
         e = space.findEntries( null, "missing", true );
         assertFalse( e.hasMoreElements() );
     }
+
+    public void testIndexedEntries()
+    {
+        final URL testClasses = getClass().getProtectionDomain().getCodeSource().getLocation();
+        final ClassLoader loader = URLClassLoader.newInstance( new URL[] { SIMPLE_JAR, CLASS_PATH_JAR, CORRUPT_MANIFEST,
+            testClasses } );
+
+        final URLClassSpace space = new URLClassSpace( loader );
+        final IndexedClassSpace indexed = URLClassSpace.indexed( loader );
+
+        assertTrue( Arrays.equals( space.getURLs(), indexed.getURLs() ) );
+
+        final String[][] queries = { { "META-INF", "MANIFEST.MF", "false" }, { "META-INF", "*.MF", "false" },
+            { null, null, "true" }, { "/", "*.class", "true" }, { "org/sonatype/guice", "URL*", "true" },
+            { "org/apache/commons/logging", "*Log*", "false" }, { "org//sonatype/guice/bean/reflect/", null, "false" },
+            { "META-INF/plexus", "components.xml", "false" }, { "", "simple.jar", "true" } };
+
+        for ( final String[] q : queries )
+        {
+            final boolean recurse = Boolean.parseBoolean( q[2] );
+            assertEquals( Arrays.toString( q ), list( space.findEntries( q[0], q[1], recurse ) ),
+                          list( indexed.findEntries( q[0], q[1], recurse ) ) );
+        }
+
+        assertFalse( indexed.findEntries( "META-INF/plexus", "components.xml", false ).hasMoreElements() );
+        assertTrue( indexed.findEntries( "/", "*.class", true ).hasMoreElements() );
+    }
+
+    public void testExpandedClassPath()
+    {
+        final URL[] path = { SIMPLE_JAR, CLASS_PATH_JAR, CORRUPT_MANIFEST, CLASS_PATH_JAR, COMMONS_LOGGING_JAR };
+        final ClassLoader loader = URLClassLoader.newInstance( path );
+
+        final URLClassSpace space = new URLClassSpace( loader, path );
+        final IndexedClassSpace indexed = URLClassSpace.indexed( loader, path );
+
+        assertTrue( Arrays.equals( space.getURLs(), indexed.getURLs() ) );
+        assertTrue( Arrays.equals( space.getURLs(), ClassPathExpander.expand( path, 4 ) ) );
+        assertTrue( Arrays.equals( new URLClassSpace( loader ).getURLs(), URLClassSpace.indexed( loader ).getURLs() ) );
+
+        assertEquals( space.toString(), indexed.toString() );
+        assertEquals( space, new URLClassSpace( loader ) );
+
+        // manifest is only read once, until the jar changes
+        assertSame( ClassPathExpander.getClassPathEntries( CLASS_PATH_JAR ),
+                    ClassPathExpander.getClassPathEntries( CLASS_PATH_JAR ) );
+
+        assertEquals( 0, URLClassSpace.indexed( loader, null ).getURLs().length );
+        assertEquals( new URLClassSpace( loader, null ).toString(), URLClassSpace.indexed( loader, null ).toString() );
+    }
+
+    public void testBloomFilter()
+    {
+        final BloomFilter filter = new BloomFilter( 1000 );
+        for ( int i = 0; i < 1000; i++ )
+        {
+            filter.add( "entry/" + i );
+        }
+        int falsePositives = 0;
+        for ( int i = 0; i < 1000; i++ )
+        {
+            assertTrue( filter.mightContain( "entry/" + i ) );
+            if ( filter.mightContain( "missing/" + i ) )
+            {
+                falsePositives++;
+            }
+        }
+        assertTrue( falsePositives < 50 );
+    }
+
+    private static List<String> list( final Enumeration<URL> e )
+    {
+        final List<String> urls = new ArrayList<String>();
+        while ( e.hasMoreElements() )
+        {
+            urls.add( e.nextElement().toString() );
+        }
+        return urls;
+    }
 }
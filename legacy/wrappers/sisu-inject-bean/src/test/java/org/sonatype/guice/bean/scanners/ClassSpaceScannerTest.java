@@ -0,0 +1,409 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.bean.scanners;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import javax.inject.Named;
+
+import org.sonatype.guice.bean.reflect.ClassSpace;
+import org.sonatype.guice.bean.reflect.URLClassSpace;
+import org.sonatype.guice.bean.scanners.asm.AnnotationVisitor;
+import org.sonatype.guice.bean.scanners.asm.ClassVisitor;
+import org.sonatype.guice.bean.scanners.asm.Type;
+
+import com.google.inject.Injector;
+
+import junit.framework.TestCase;
+
+public class ClassSpaceScannerTest
+    extends TestCase
+{
+    @Named
+    static class QualifiedA
+    {
+    }
+
+    @Deprecated
+    static class PlainB
+    {
+    }
+
+    @Named
+    static class QualifiedC
+    {
+    }
+
+    static class RecordingVisitor
+        implements ClassSpaceVisitor, ClassVisitor, AnnotationVisitor
+    {
+        final List<String> events = new ArrayList<String>();
+
+        public void visit( final ClassSpace space )
+        {
+            events.add( "space" );
+        }
+
+        public ClassVisitor visitClass( final URL url )
+        {
+            events.add( url.toString() );
+            return this;
+        }
+
+        public void visit( final int version, final int access, final String name, final String signature,
+                           final String superName, final String[] interfaces )
+        {
+            events.add( name + ' ' + access + ' ' + superName + ' ' + interfaces.length );
+        }
+
+        public AnnotationVisitor visitAnnotation( final String desc, final boolean visible )
+        {
+            events.add( desc );
+            return this;
+        }
+
+        public void visit( final String name, final Object value )
+        {
+            events.add( name + '=' + value );
+        }
+
+        public void visitEnd()
+        {
+            events.add( "end" );
+        }
+    }
+
+    public void testParallelScanning()
+    {
+        final URL codeSource = ClassSpaceScanner.class.getProtectionDomain().getCodeSource().getLocation();
+        final ClassSpace space = new URLClassSpace( getClass().getClassLoader(), new URL[] { codeSource } );
+
+        final RecordingVisitor sequential = new RecordingVisitor();
+        new ClassSpaceScanner( space ).accept( sequential );
+
+        final RecordingVisitor parallel = new RecordingVisitor();
+        final ClassSpaceScanner scanner = new ClassSpaceScanner( space );
+        scanner.setParallelism( 4 );
+        scanner.accept( parallel );
+
+        assertTrue( sequential.events.size() > 100 );
+        assertEquals( sequential.events, parallel.events );
+    }
+
+    public void testExecutorScanning()
+    {
+        final URL codeSource = ClassSpaceScanner.class.getProtectionDomain().getCodeSource().getLocation();
+        final ClassSpace space = new URLClassSpace( getClass().getClassLoader(), new URL[] { codeSource } );
+
+        final RecordingVisitor sequential = new RecordingVisitor();
+        new ClassSpaceScanner( space ).accept( sequential );
+
+        // virtual threads where available, otherwise a platform thread per processor
+        final ExecutorService executor = ParallelSpaceScanner.newVirtualExecutor();
+        try
+        {
+            final RecordingVisitor concurrent = new RecordingVisitor();
+            final ClassSpaceScanner scanner = new ClassSpaceScanner( space );
+            scanner.setExecutor( executor );
+            scanner.accept( concurrent );
+
+            assertTrue( sequential.events.size() > 100 );
+            assertEquals( sequential.events, concurrent.events );
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    public void testReusedAdapters()
+    {
+        final URL codeSource = ClassSpaceScanner.class.getProtectionDomain().getCodeSource().getLocation();
+        final ClassSpace space = new URLClassSpace( getClass().getClassLoader(), new URL[] { codeSource } );
+
+        final RecordingVisitor shared = new RecordingVisitor();
+        new ClassSpaceScanner( space ).accept( shared );
+
+        // fresh delegates per class and per annotation must each see their own events, in scan order
+        final List<RecordingVisitor> delegates = new ArrayList<RecordingVisitor>();
+        new ClassSpaceScanner( space ).accept( new ClassSpaceVisitor()
+        {
+            public void visit( final ClassSpace _space )
+            {
+                // no-op
+            }
+
+            public ClassVisitor visitClass( final URL url )
+            {
+                final RecordingVisitor cv = new RecordingVisitor()
+                {
+                    @Override
+                    public AnnotationVisitor visitAnnotation( final String desc, final boolean visible )
+                    {
+                        final RecordingVisitor av = new RecordingVisitor();
+                        av.events.add( desc );
+                        delegates.add( av );
+                        return av;
+                    }
+                };
+                cv.events.add( url.toString() );
+                delegates.add( cv );
+                return cv;
+            }
+
+            public void visitEnd()
+            {
+                // no-op
+            }
+        } );
+
+        final List<String> events = new ArrayList<String>();
+        events.add( "space" );
+        for ( final RecordingVisitor v : delegates )
+        {
+            assertEquals( "end", v.events.get( v.events.size() - 1 ) );
+            events.addAll( v.events );
+        }
+        events.add( "end" );
+
+        final List<String> expected = new ArrayList<String>( shared.events );
+        Collections.sort( expected );
+        Collections.sort( events );
+
+        assertTrue( delegates.size() > 100 );
+        assertEquals( expected, events );
+    }
+
+    public void testQualifiedTypeVisitorReset()
+        throws Exception
+    {
+        final List<Class<?>> heard = new ArrayList<Class<?>>();
+        final QualifiedTypeVisitor visitor = new QualifiedTypeVisitor( new QualifiedTypeListener()
+        {
+            public void hear( final Annotation qualifier, final Class<?> qualifiedType, final Object source )
+            {
+                heard.add( qualifiedType );
+            }
+        } );
+
+        final ClassSpace space = new URLClassSpace( getClass().getClassLoader() );
+        visitor.visit( space );
+
+        // an unqualified class visited after a qualified one must not inherit its state
+        for ( final Class<?> clazz : new Class<?>[] { QualifiedA.class, PlainB.class, QualifiedC.class, PlainB.class } )
+        {
+            final URL url = classURL( clazz );
+            ClassSpaceScanner.accept( visitor.visitClass( url ), url );
+        }
+
+        visitor.visitEnd();
+
+        assertEquals( Arrays.<Class<?>> asList( QualifiedA.class, QualifiedC.class ), heard );
+    }
+
+    public void testInternTable()
+    {
+        final InternTable strings = new InternTable();
+
+        final String role = strings.intern( new String( "org.example.Role" ) );
+        assertSame( role, strings.intern( new String( "org.example.Role" ) ) );
+
+        final String name = strings.className( Type.getObjectType( "org/example/Role" ) );
+        assertSame( role, name );
+        assertSame( role, strings.value( org.eclipse.sisu.space.asm.Type.getObjectType( "org/example/Role" ) ) );
+
+        final Integer number = Integer.valueOf( 42 );
+        assertSame( number, strings.value( number ) );
+        assertNull( strings.intern( null ) );
+        assertEquals( 1, strings.size() );
+    }
+
+    public void testMappedJars()
+        throws Exception
+    {
+        final URL codeSource = Injector.class.getProtectionDomain().getCodeSource().getLocation();
+        final ClassSpace space = new URLClassSpace( getClass().getClassLoader(), new URL[] { codeSource } );
+
+        try
+        {
+            ClassSpaceScanner.setMappedJars( false );
+            final RecordingVisitor streamed = new RecordingVisitor();
+            new ClassSpaceScanner( space ).accept( streamed );
+
+            ClassSpaceScanner.setMappedJars( true );
+            final RecordingVisitor mapped = new RecordingVisitor();
+            new ClassSpaceScanner( space ).accept( mapped );
+
+            assertTrue( streamed.events.size() > 100 );
+            assertEquals( streamed.events, mapped.events );
+            assertEquals( 0, MappedJars.mappedJars() );
+
+            final URL clazz = Injector.class.getResource( "Injector.class" );
+            assertNull( MappedJars.read( clazz ) ); // no scan running to release the mapping
+
+            final InputStream in = clazz.openStream();
+            MappedJars.enterScan();
+            try
+            {
+                final byte[] bytes = MappedJars.read( clazz );
+                for ( final byte b : bytes )
+                {
+                    assertEquals( in.read(), b & 0xFF );
+                }
+                assertEquals( -1, in.read() );
+                assertEquals( 1, MappedJars.mappedJars() );
+            }
+            finally
+            {
+                MappedJars.leaveScan();
+                in.close();
+            }
+            assertEquals( 0, MappedJars.mappedJars() );
+        }
+        finally
+        {
+            ClassSpaceScanner.setMappedJars( MappedJars.DEFAULT_ENABLED );
+        }
+    }
+
+    public void testMappedEntryNames()
+        throws Exception
+    {
+        final File jar = File.createTempFile( "mapped", ".jar" );
+        final File broken = File.createTempFile( "broken", ".jar" );
+        try
+        {
+            final String[] names = { "dir with space/Spaced.class", "dir/\u00dcn\u00efc\u00f6d\u00e9.class" };
+            final JarOutputStream out = new JarOutputStream( new FileOutputStream( jar ) );
+            try
+            {
+                for ( final String name : names )
+                {
+                    out.putNextEntry( new JarEntry( name ) );
+                    out.write( name.getBytes( "UTF-8" ) );
+                }
+            }
+            finally
+            {
+                out.close();
+            }
+            final FileOutputStream junk = new FileOutputStream( broken );
+            try
+            {
+                junk.write( new byte[] { 1, 2, 3 } );
+            }
+            finally
+            {
+                junk.close();
+            }
+
+            final URLClassLoader loader = new URLClassLoader( new URL[] { jar.toURI().toURL() } );
+            MappedJars.enterScan();
+            try
+            {
+                for ( final String name : names )
+                {
+                    final URL url = loader.findResource( name );
+                    assertTrue( url.toString().contains( "%" ) );
+                    assertEquals( name, new String( MappedJars.read( url ), "UTF-8" ) );
+                }
+                final URL junkEntry = new URL( "jar:" + broken.toURI() + "!/Junk.class" );
+                assertNull( MappedJars.read( junkEntry ) );
+                assertNull( MappedJars.read( junkEntry ) );
+                assertEquals( 2, MappedJars.mappedJars() ); // unmappable jar is remembered until it changes
+            }
+            finally
+            {
+                MappedJars.leaveScan();
+            }
+        }
+        finally
+        {
+            jar.delete();
+            broken.delete();
+        }
+    }
+
+    public void testAnnotationPrefilter()
+        throws Exception
+    {
+        final URL testClasses = getClass().getProtectionDomain().getCodeSource().getLocation();
+        final ClassSpace space = new URLClassSpace( getClass().getClassLoader(), new URL[] { testClasses } );
+
+        final List<String> filtered = new ArrayList<String>();
+        final QualifiedTypeVisitor qualifiedVisitor = new QualifiedTypeVisitor( new QualifiedTypeListener()
+        {
+            public void hear( final Annotation qualifier, final Class<?> qualifiedType, final Object source )
+            {
+                filtered.add( qualifiedType.getName() );
+            }
+        } );
+        new ClassSpaceScanner( space ).accept( qualifiedVisitor );
+
+        final List<String> unfiltered = new ArrayList<String>();
+        final QualifiedTypeVisitor unfilteredVisitor = new QualifiedTypeVisitor( new QualifiedTypeListener()
+        {
+            public void hear( final Annotation qualifier, final Class<?> qualifiedType, final Object source )
+            {
+                unfiltered.add( qualifiedType.getName() );
+            }
+        } );
+        new ClassSpaceScanner( space ).accept( new ClassSpaceVisitor()
+        {
+            public void visit( final ClassSpace _space )
+            {
+                unfilteredVisitor.visit( _space );
+            }
+
+            public ClassVisitor visitClass( final URL url )
+            {
+                return unfilteredVisitor.visitClass( url );
+            }
+
+            public void visitEnd()
+            {
+                unfilteredVisitor.visitEnd();
+            }
+        } );
+
+        assertFalse( filtered.isEmpty() );
+        assertEquals( unfiltered, filtered );
+
+        assertFalse( AnnotationPrefilter.mayHaveAnnotations( read( RecordingVisitor.class ) ) );
+        assertTrue( AnnotationPrefilter.mayHaveAnnotations( read( Deprecated.class ) ) );
+        assertTrue( AnnotationPrefilter.mayHaveAnnotations( read( ClassSpaceScanner.class ) ) );
+    }
+
+    private static URL classURL( final Class<?> clazz )
+    {
+        return clazz.getClassLoader().getResource( clazz.getName().replace( '.', '/' ) + ".class" );
+    }
+
+    private static byte[] read( final Class<?> clazz )
+        throws Exception
+    {
+        final String name = clazz.getName();
+        final URL url = clazz.getResource( name.substring( name.lastIndexOf( '.' ) + 1 ) + ".class" );
+        return MappedJars.readFully( url );
+    }
+}
@@ -0,0 +1,277 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.bean.scanners;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.sisu.space.AnnotationVisitor;
+import org.eclipse.sisu.space.ClassSpace;
+import org.eclipse.sisu.space.ClassVisitor;
+import org.eclipse.sisu.space.SpaceScanner;
+import org.eclipse.sisu.space.SpaceVisitor;
+import org.eclipse.sisu.space.URLClassSpace;
+
+import com.google.inject.Injector;
+
+import junit.framework.TestCase;
+
+public class ScanCacheTest
+    extends TestCase
+{
+    static class RecordingVisitor
+        implements SpaceVisitor, ClassVisitor, AnnotationVisitor
+    {
+        final List<String> events = new ArrayList<String>();
+
+        public void enterSpace( final ClassSpace space )
+        {
+            events.add( "space" );
+        }
+
+        public ClassVisitor visitClass( final URL url )
+        {
+            events.add( url.toString() );
+            return this;
+        }
+
+        public void enterClass( final int modifiers, final String name, final String _extends,
+                                final String[] _implements )
+        {
+            events.add( name + ' ' + modifiers + ' ' + _extends + ' ' + _implements.length );
+        }
+
+        public AnnotationVisitor visitAnnotation( final String desc )
+        {
+            events.add( desc );
+            return this;
+        }
+
+        public void enterAnnotation()
+        {
+            events.add( "enter" );
+        }
+
+        public void visitElement( final String name, final Object value )
+        {
+            events.add( name + '=' + value );
+        }
+
+        public void leaveAnnotation()
+        {
+            events.add( "leave" );
+        }
+
+        public void leaveClass()
+        {
+            events.add( "end" );
+        }
+
+        public void leaveSpace()
+        {
+            events.add( "done" );
+        }
+    }
+
+    static class ParsedCounter
+        implements SpaceVisitor
+    {
+        final SpaceVisitor delegate;
+
+        int parsed;
+
+        ParsedCounter( final SpaceVisitor delegate )
+        {
+            this.delegate = delegate;
+        }
+
+        public void enterSpace( final ClassSpace space )
+        {
+            delegate.enterSpace( space );
+        }
+
+        public ClassVisitor visitClass( final URL url )
+        {
+            final ClassVisitor cv = delegate.visitClass( url );
+            if ( null != cv )
+            {
+                parsed++;
+            }
+            return cv;
+        }
+
+        public void leaveSpace()
+        {
+            delegate.leaveSpace();
+        }
+    }
+
+    File cacheDir;
+
+    File jar;
+
+    @Override
+    protected void setUp()
+        throws IOException
+    {
+        cacheDir = File.createTempFile( "scan", "cache" );
+        cacheDir.delete();
+        jar = File.createTempFile( "guice", ".jar" );
+        copy( new File( Injector.class.getProtectionDomain().getCodeSource().getLocation().getPath() ), jar );
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        final File[] files = cacheDir.listFiles();
+        if ( null != files )
+        {
+            for ( final File f : files )
+            {
+                f.delete();
+            }
+        }
+        cacheDir.delete();
+        jar.delete();
+    }
+
+    public void testPersistentScanCache()
+        throws Exception
+    {
+        final ClassSpace space = new URLClassSpace( getClass().getClassLoader(), new URL[] { jar.toURI().toURL() } );
+
+        final RecordingVisitor expected = new RecordingVisitor();
+        new SpaceScanner( space ).accept( expected );
+
+        final RecordingVisitor cold = new RecordingVisitor();
+        final ParsedCounter coldCounter = new ParsedCounter( new ScanCache( cacheDir ).wrap( cold ) );
+        new SpaceScanner( space ).accept( coldCounter );
+
+        assertEquals( expected.events, cold.events );
+        assertTrue( coldCounter.parsed > 100 );
+        assertEquals( 1, cacheDir.listFiles().length );
+
+        final RecordingVisitor warm = new RecordingVisitor();
+        final ParsedCounter warmCounter = new ParsedCounter( new ScanCache( cacheDir ).wrap( warm ) );
+        new SpaceScanner( space ).accept( warmCounter );
+
+        assertEquals( expected.events, warm.events );
+        assertEquals( 0, warmCounter.parsed );
+
+        assertTrue( jar.setLastModified( jar.lastModified() - 60000 ) );
+
+        final RecordingVisitor touched = new RecordingVisitor();
+        final ParsedCounter touchedCounter = new ParsedCounter( new ScanCache( cacheDir ).wrap( touched ) );
+        new SpaceScanner( space ).accept( touchedCounter );
+
+        assertEquals( expected.events, touched.events );
+        assertEquals( coldCounter.parsed, touchedCounter.parsed );
+    }
+
+    public void testIncompleteClassIsNotSaved()
+        throws Exception
+    {
+        final URL complete = new URL( "jar:" + jar.toURI() + "!/com/google/inject/Injector.class" );
+        final URL partial = new URL( "jar:" + jar.toURI() + "!/com/google/inject/Module.class" );
+
+        final SpaceVisitor cold = new ScanCache( cacheDir ).wrap( new RecordingVisitor() );
+        cold.enterSpace( null );
+        final ClassVisitor cv = cold.visitClass( complete );
+        cv.enterClass( 0, "com/google/inject/Injector", "java/lang/Object", new String[0] );
+        cv.leaveClass();
+        cold.visitClass( partial ).enterClass( 0, "com/google/inject/Module", "java/lang/Object", new String[0] );
+        cold.leaveSpace(); // as if parsing Module failed part way
+
+        final SpaceVisitor warm = new ScanCache( cacheDir ).wrap( new RecordingVisitor() );
+        warm.enterSpace( null );
+        assertNull( warm.visitClass( complete ) );
+        assertNotNull( warm.visitClass( partial ) );
+    }
+
+    public void testUnsupportedValueIsSkipped()
+        throws Exception
+    {
+        final RecordedClass clazz = new RecordedClass( null );
+        clazz.enterClass( 0, "Example", "java/lang/Object", new String[0] );
+        final AnnotationVisitor av = clazz.visitAnnotation( "LExample;" );
+        av.enterAnnotation();
+        av.visitElement( "value", "text" );
+        av.visitElement( "other", new Object() );
+        av.visitElement( "count", Integer.valueOf( 3 ) );
+        av.leaveAnnotation();
+        clazz.leaveClass();
+
+        final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        clazz.writeTo( new DataOutputStream( buf ) );
+
+        final DataInputStream in = new DataInputStream( new ByteArrayInputStream( buf.toByteArray() ) );
+        final RecordingVisitor replayed = new RecordingVisitor();
+        RecordedClass.readFrom( in ).replay( replayed );
+
+        assertEquals( Arrays.asList( "Example 0 java/lang/Object 0", "LExample;", "enter", "value=text", "count=3",
+                                     "leave", "end" ), replayed.events );
+    }
+
+    public void testUnusedCacheFilesAreEvicted()
+        throws Exception
+    {
+        assertTrue( cacheDir.mkdirs() );
+        final File stale = new File( cacheDir, "stale.jar-1234.scan" );
+        final File recent = new File( cacheDir, "recent.jar-5678.scan" );
+        assertTrue( stale.createNewFile() && recent.createNewFile() );
+        assertTrue( stale.setLastModified( System.currentTimeMillis() - 60L * 24 * 60 * 60 * 1000 ) );
+
+        final ClassSpace space = new URLClassSpace( getClass().getClassLoader(), new URL[] { jar.toURI().toURL() } );
+        new SpaceScanner( space ).accept( new ScanCache( cacheDir ).wrap( new RecordingVisitor() ) );
+
+        assertFalse( stale.exists() );
+        assertTrue( recent.exists() );
+        assertEquals( 2, cacheDir.listFiles().length );
+    }
+
+    private static void copy( final File from, final File to )
+        throws IOException
+    {
+        final InputStream in = new FileInputStream( from );
+        try
+        {
+            final OutputStream out = new FileOutputStream( to );
+            try
+            {
+                final byte[] buf = new byte[8192];
+                for ( int n; ( n = in.read( buf ) ) > 0; )
+                {
+                    out.write( buf, 0, n );
+                }
+            }
+            finally
+            {
+                out.close();
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+}
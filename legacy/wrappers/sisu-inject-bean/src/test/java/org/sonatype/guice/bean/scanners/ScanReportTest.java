@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.bean.scanners;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.annotation.Annotation;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Named;
+
+import org.sonatype.guice.bean.binders.SpaceModule;
+import org.sonatype.guice.bean.reflect.ClassSpace;
+import org.sonatype.guice.bean.reflect.URLClassSpace;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+
+import junit.framework.TestCase;
+
+public class ScanReportTest
+    extends TestCase
+{
+    @Named
+    static class ReportedBean
+    {
+    }
+
+    ClassSpace space;
+
+    String guiceJar;
+
+    String testClasses;
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        final URL guice = Injector.class.getProtectionDomain().getCodeSource().getLocation();
+        final URL tests = getClass().getProtectionDomain().getCodeSource().getLocation();
+        space = new URLClassSpace( getClass().getClassLoader(), new URL[] { guice, tests } );
+
+        guiceJar = guice.toString();
+        testClasses = tests.toString();
+    }
+
+    public void testScannerReport()
+    {
+        final ScanReport report = new ScanReport();
+        final ClassSpaceScanner scanner = new ClassSpaceScanner( space );
+        scanner.setScanReport( report );
+        scanner.accept( qualifiedTypeVisitor() );
+
+        final Map<String, ScanReport.Entry> entries = index( report );
+        assertEquals( 2, entries.size() );
+
+        final ScanReport.Entry guice = entries.get( guiceJar );
+        assertTrue( guice.getClassesVisited() > 100 );
+        assertTrue( guice.getBytesRead() > 100000 );
+        assertTrue( guice.getElapsedNanos() > 0 );
+        assertEquals( 0, guice.getQualifiedTypes() );
+
+        final ScanReport.Entry tests = entries.get( testClasses );
+        assertTrue( tests.getClassesVisited() > 0 );
+        assertTrue( tests.getQualifiedTypes() > 0 );
+        assertEquals( tests.getQualifiedTypes(), tests.getClassesLoaded() );
+
+        assertTrue( report.toJSON().contains( "\"url\":\"" + guiceJar + "\",\"elapsedNanos\":" ) );
+    }
+
+    public void testParallelReport()
+    {
+        final ScanReport sequential = new ScanReport();
+        final ScanReport parallel = new ScanReport();
+
+        final ClassSpaceScanner scanner = new ClassSpaceScanner( space );
+        scanner.setScanReport( sequential );
+        scanner.accept( qualifiedTypeVisitor() );
+        scanner.setParallelism( 4 );
+        scanner.setScanReport( parallel );
+        scanner.accept( qualifiedTypeVisitor() );
+
+        final Map<String, ScanReport.Entry> lhs = index( sequential );
+        final Map<String, ScanReport.Entry> rhs = index( parallel );
+        assertEquals( lhs.keySet(), rhs.keySet() );
+        for ( final String url : lhs.keySet() )
+        {
+            assertEquals( lhs.get( url ).getClassesVisited(), rhs.get( url ).getClassesVisited() );
+            assertEquals( lhs.get( url ).getQualifiedTypes(), rhs.get( url ).getQualifiedTypes() );
+        }
+    }
+
+    public void testReportingSpaceEquality()
+    {
+        final org.eclipse.sisu.space.ClassSpace plain =
+            new org.eclipse.sisu.space.URLClassSpace( getClass().getClassLoader() );
+
+        final ScanReport report = new ScanReport();
+        final org.eclipse.sisu.space.ClassSpace lhs = report.wrap( plain );
+        final org.eclipse.sisu.space.ClassSpace rhs = report.wrap( plain );
+
+        assertEquals( lhs, rhs );
+        assertEquals( rhs, lhs );
+        assertEquals( lhs.hashCode(), rhs.hashCode() );
+
+        assertFalse( lhs.equals( plain ) );
+        assertFalse( plain.equals( lhs ) );
+    }
+
+    public void testSpaceModuleReport()
+        throws Exception
+    {
+        final File file = File.createTempFile( "scan", ".json" );
+        try
+        {
+            final ScanReport report = new ScanReport( file );
+            Guice.createInjector( new SpaceModule( space ).with( report ) );
+
+            final ScanReport.Entry tests = index( report ).get( testClasses );
+            assertTrue( tests.getQualifiedTypes() > 0 );
+
+            final Reader reader = new InputStreamReader( new FileInputStream( file ), "UTF-8" );
+            try
+            {
+                final StringBuilder buf = new StringBuilder();
+                for ( int c; ( c = reader.read() ) >= 0; )
+                {
+                    buf.append( (char) c );
+                }
+                assertEquals( report.toJSON(), buf.toString() );
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    private static QualifiedTypeVisitor qualifiedTypeVisitor()
+    {
+        return new QualifiedTypeVisitor( new QualifiedTypeListener()
+        {
+            public void hear( final Annotation qualifier, final Class<?> qualifiedType, final Object source )
+            {
+                // no-op
+            }
+        } );
+    }
+
+    private static Map<String, ScanReport.Entry> index( final ScanReport report )
+    {
+        final Map<String, ScanReport.Entry> entries = new HashMap<String, ScanReport.Entry>();
+        for ( final ScanReport.Entry entry : report.getEntries() )
+        {
+            entries.put( entry.getURL(), entry );
+        }
+        return entries;
+    }
+}
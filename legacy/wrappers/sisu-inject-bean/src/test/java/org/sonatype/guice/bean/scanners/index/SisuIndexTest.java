@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.bean.scanners.index;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Named;
+
+import org.sonatype.guice.bean.reflect.URLClassSpace;
+
+import junit.framework.TestCase;
+
+public class SisuIndexTest
+    extends TestCase
+{
+    @Named
+    public static class A
+    {
+    }
+
+    @Named
+    public static class B
+    {
+    }
+
+    public static class C
+    {
+    }
+
+    @Named
+    public static class D
+    {
+    }
+
+    public static class Unqualified
+    {
+    }
+
+    File classesDir;
+
+    File indexFile;
+
+    @Override
+    protected void setUp()
+        throws IOException
+    {
+        classesDir = File.createTempFile( "sisu", "index" );
+        classesDir.delete();
+        classesDir.mkdir();
+        indexFile = new File( classesDir, "META-INF/sisu/javax.inject.Named" );
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        delete( classesDir );
+        new File( classesDir.getAbsolutePath() + ".sisu-stamps" ).delete();
+    }
+
+    public void testIncrementalIndex()
+        throws Exception
+    {
+        final long past = System.currentTimeMillis() - 60000;
+        copyClass( A.class ).setLastModified( past );
+        copyClass( B.class ).setLastModified( past );
+        copyClass( C.class ).setLastModified( past );
+
+        final SisuIndex index = new SisuIndex( classesDir );
+        index.setIncremental( true );
+        index.index( space() );
+
+        assertEquals( names( A.class, B.class ), readIndex() );
+
+        // unchanged classes must not be parsed again, so corrupt one without touching its size or timestamp
+        final File a = classFile( A.class );
+        final byte[] garbage = new byte[(int) a.length()];
+        final OutputStream out = new FileOutputStream( a );
+        out.write( garbage );
+        out.close();
+        a.setLastModified( past );
+
+        // a class replaced by an older build has the same timestamp but a different size
+        final File b = classFile( B.class );
+        copyClass( Unqualified.class ).renameTo( b );
+        b.setLastModified( past );
+
+        copyClass( D.class );
+
+        index.index( space() );
+
+        assertEquals( names( A.class, D.class ), readIndex() );
+
+        // nothing changed, so nothing is rewritten
+        indexFile.setLastModified( past );
+        index.index( space() );
+
+        assertEquals( past, indexFile.lastModified() );
+        assertEquals( names( A.class, D.class ), readIndex() );
+    }
+
+    public void testParallelIndex()
+        throws Exception
+    {
+        copyClass( A.class );
+        copyClass( B.class );
+        copyClass( C.class );
+        copyClass( D.class );
+
+        final SisuIndex index = new SisuIndex( classesDir );
+        index.setParallelism( 2 );
+        index.index( space() );
+
+        assertEquals( names( A.class, B.class, D.class ), readIndex() );
+    }
+
+    private URLClassSpace space()
+        throws IOException
+    {
+        final URL[] path = { classesDir.toURI().toURL() };
+        return new URLClassSpace( new URLClassLoader( path, getClass().getClassLoader() ), path );
+    }
+
+    private List<String> readIndex()
+        throws IOException
+    {
+        final List<String> names = new ArrayList<String>();
+        final BufferedReader reader =
+            new BufferedReader( new InputStreamReader( new FileInputStream( indexFile ), "UTF-8" ) );
+        try
+        {
+            for ( String line = reader.readLine(); line != null; line = reader.readLine() )
+            {
+                names.add( line );
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+        return names;
+    }
+
+    private static List<String> names( final Class<?>... classes )
+    {
+        final List<String> names = new ArrayList<String>();
+        for ( final Class<?> clazz : classes )
+        {
+            names.add( clazz.getName() );
+        }
+        return names;
+    }
+
+    private File classFile( final Class<?> clazz )
+    {
+        return new File( classesDir, clazz.getName().replace( '.', '/' ) + ".class" );
+    }
+
+    private File copyClass( final Class<?> clazz )
+        throws IOException
+    {
+        final File file = classFile( clazz );
+        file.getParentFile().mkdirs();
+
+        final String name = clazz.getName().replace( '.', '/' ) + ".class";
+        final InputStream in = clazz.getClassLoader().getResourceAsStream( name );
+        try
+        {
+            final OutputStream out = new FileOutputStream( file );
+            try
+            {
+                final byte[] buf = new byte[8192];
+                for ( int n; ( n = in.read( buf ) ) > 0; )
+                {
+                    out.write( buf, 0, n );
+                }
+            }
+            finally
+            {
+                out.close();
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+        return file;
+    }
+
+    private static void delete( final File file )
+    {
+        final File[] files = file.listFiles();
+        if ( null != files )
+        {
+            for ( final File f : files )
+            {
+                delete( f );
+            }
+        }
+        file.delete();
+    }
+}
@@ -11,8 +11,11 @@
 package org.sonatype.guice.plexus.annotations;
 
 import java.lang.annotation.Annotation;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.codehaus.plexus.component.annotations.Component;
+import org.sonatype.guice.bean.reflect.Weak;
 
 @Deprecated
 public final class ComponentImpl
@@ -20,6 +23,11 @@ public final class ComponentImpl
 {
     private static final int HASH_CODE_OFFSET = 0x685499F5;
 
+    // role name -> hint -> component; keyed by role name rather than role, so the table never keeps a class loader
+    // alive on its own
+    private static final ConcurrentMap<String, ConcurrentMap<String, ComponentImpl>> INTERNED =
+        new ConcurrentHashMap<String, ConcurrentMap<String, ComponentImpl>>();
+
     private final Class<?> role;
 
     private final String hint;
@@ -28,6 +36,8 @@ public final class ComponentImpl
 
     private final String description;
 
+    private final int hashCode;
+
     public ComponentImpl( final Class<?> role, final String hint, final String instantiationStrategy,
                           final String description )
     {
@@ -40,6 +50,50 @@ public final class ComponentImpl
         this.hint = hint;
         this.instantiationStrategy = instantiationStrategy;
         this.description = description;
+
+        hashCode = HASH_CODE_OFFSET + ( 127 * "role".hashCode() ^ role.hashCode() )
+            + ( 127 * "hint".hashCode() ^ hint.hashCode() )
+            + ( 127 * "instantiationStrategy".hashCode() ^ instantiationStrategy.hashCode() )
+            + ( 127 * "description".hashCode() ^ description.hashCode() );
+    }
+
+    // returns a shared instance for identical descriptors, so repeated components cost one object between them
+    public static ComponentImpl intern( final Class<?> role, final String hint, final String instantiationStrategy,
+                                        final String description )
+    {
+        if ( null == role || null == hint || null == instantiationStrategy || null == description )
+        {
+            throw new IllegalArgumentException( "@Component cannot contain null values" );
+        }
+
+        ConcurrentMap<String, ComponentImpl> hints = INTERNED.get( role.getName() );
+        if ( null == hints )
+        {
+            final ConcurrentMap<String, ComponentImpl> newHints = Weak.concurrentValues();
+            hints = INTERNED.putIfAbsent( role.getName(), newHints );
+            if ( null == hints )
+            {
+                hints = newHints;
+            }
+        }
+
+        final ComponentImpl interned = hints.get( hint );
+        if ( null != interned && interned.matches( role, instantiationStrategy, description ) )
+        {
+            return interned;
+        }
+
+        final ComponentImpl component = new ComponentImpl( role, hint, instantiationStrategy, description );
+        if ( null == interned )
+        {
+            // same role name from another class loader keeps whichever got there first
+            final ComponentImpl existing = hints.putIfAbsent( hint, component );
+            if ( null != existing && existing.matches( role, instantiationStrategy, description ) )
+            {
+                return existing;
+            }
+        }
+        return component;
     }
 
     public Class<?> role()
@@ -115,6 +169,15 @@ public final class ComponentImpl
             return true;
         }
 
+        if ( rhs instanceof ComponentImpl )
+        {
+            final ComponentImpl cmp = (ComponentImpl) rhs;
+
+            // both have the same hard-coded attributes, so only the stored values matter
+            return hashCode == cmp.hashCode && role == cmp.role && hint.equals( cmp.hint )
+                && instantiationStrategy.equals( cmp.instantiationStrategy ) && description.equals( cmp.description );
+        }
+
         if ( rhs instanceof Component )
         {
             final Component cmp = (Component) rhs;
@@ -124,11 +187,10 @@ public final class ComponentImpl
                 && description.equals( cmp.description() ) )
             {
                 // optimization: we hard-code all these attributes to be empty
-                final String hardCodedAttributes =
-                    cmp.alias() + cmp.composer() + cmp.configurator() + cmp.factory() + cmp.lifecycleHandler()
-                        + cmp.profile() + cmp.type() + cmp.version();
-
-                return hardCodedAttributes.length() == 0 && !cmp.isolatedRealm();
+                return cmp.alias().length() == 0 && cmp.composer().length() == 0
+                    && cmp.configurator().length() == 0 && cmp.factory().length() == 0
+                    && cmp.lifecycleHandler().length() == 0 && cmp.profile().length() == 0
+                    && cmp.type().length() == 0 && cmp.version().length() == 0 && !cmp.isolatedRealm();
             }
         }
 
@@ -138,10 +200,13 @@ public final class ComponentImpl
     @Override
     public int hashCode()
     {
-        return HASH_CODE_OFFSET + ( 127 * "role".hashCode() ^ role.hashCode() )
-            + ( 127 * "hint".hashCode() ^ hint.hashCode() )
-            + ( 127 * "instantiationStrategy".hashCode() ^ instantiationStrategy.hashCode() )
-            + ( 127 * "description".hashCode() ^ description.hashCode() );
+        return hashCode;
+    }
+
+    private boolean matches( final Class<?> _role, final String _instantiationStrategy, final String _description )
+    {
+        return role == _role && instantiationStrategy.equals( _instantiationStrategy )
+            && description.equals( _description );
     }
 
     @Override
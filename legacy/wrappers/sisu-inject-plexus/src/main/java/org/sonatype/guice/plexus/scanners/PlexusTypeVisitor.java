@@ -16,14 +16,15 @@ import org.codehaus.plexus.component.annotations.Component;
 import org.eclipse.sisu.inject.Legacy;
 import org.sonatype.guice.bean.reflect.ClassSpace;
 import org.sonatype.guice.bean.reflect.DeferredClass;
-import org.sonatype.guice.bean.scanners.ClassSpaceVisitor;
+import org.sonatype.guice.bean.scanners.AnnotatedTypeVisitor;
+import org.sonatype.guice.bean.scanners.InternTable;
 import org.sonatype.guice.bean.scanners.asm.AnnotationVisitor;
 import org.sonatype.guice.bean.scanners.asm.ClassVisitor;
 import org.sonatype.guice.bean.scanners.asm.Type;
 
 @Deprecated
 public final class PlexusTypeVisitor
-    implements ClassSpaceVisitor, ClassVisitor
+    implements AnnotatedTypeVisitor, ClassVisitor
 {
     @SuppressWarnings( "rawtypes" )
     static final Legacy<org.eclipse.sisu.inject.DeferredClass<?>> LEGACY_DEFERRED_CLASS =
@@ -31,7 +32,10 @@ public final class PlexusTypeVisitor
 
     private final org.eclipse.sisu.plexus.PlexusTypeVisitor delegate;
 
-    private ClassVisitor visitor;
+    // reused for every class and annotation in the space, which are never visited concurrently or nested
+    private final AnnotationAdapter annotationAdapter = new AnnotationAdapter();
+
+    private org.eclipse.sisu.space.ClassVisitor visitor;
 
     public PlexusTypeVisitor( final PlexusTypeListener listener )
     {
@@ -40,12 +44,13 @@ public final class PlexusTypeVisitor
 
     public void visit( final ClassSpace space )
     {
+        annotationAdapter.strings = new InternTable(); // role and hint names repeat across the whole scan
         delegate.enterSpace( space );
     }
 
     public ClassVisitor visitClass( final URL url )
     {
-        visitor = adapt( delegate.visitClass( url ) );
+        visitor = delegate.visitClass( url );
         return this;
     }
 
@@ -54,25 +59,27 @@ public final class PlexusTypeVisitor
     {
         if ( null != visitor )
         {
-            visitor.visit( version, access, name, signature, superName, interfaces );
+            visitor.enterClass( access, name, superName, interfaces );
         }
     }
 
     public AnnotationVisitor visitAnnotation( final String desc, final boolean visible )
     {
-        return null != visitor ? visitor.visitAnnotation( desc, visible ) : null;
+        final org.eclipse.sisu.space.AnnotationVisitor av = null != visitor ? visitor.visitAnnotation( desc ) : null;
+        return null != av ? annotationAdapter.reset( av ) : null;
     }
 
     public void visitEnd()
     {
         if ( null != visitor )
         {
-            visitor.visitEnd();
+            visitor.leaveClass();
             visitor = null;
         }
         else
         {
             delegate.leaveSpace();
+            annotationAdapter.strings = null;
         }
     }
 
@@ -93,45 +100,36 @@ public final class PlexusTypeVisitor
         };
     }
 
-    static ClassVisitor adapt( final org.eclipse.sisu.space.ClassVisitor delegate )
+    static final class AnnotationAdapter
+        implements AnnotationVisitor
     {
-        return null == delegate ? null : new ClassVisitor()
-        {
-            public void visit( final int version, final int access, final String name, final String signature,
-                               final String superName, final String[] interfaces )
-            {
-                delegate.enterClass( access, name, superName, interfaces );
-            }
+        InternTable strings;
 
-            public AnnotationVisitor visitAnnotation( final String desc, final boolean visible )
-            {
-                return adapt( delegate.visitAnnotation( desc ) );
-            }
+        private org.eclipse.sisu.space.AnnotationVisitor delegate;
 
-            public void visitEnd()
-            {
-                delegate.leaveClass();
-            }
-        };
-    }
+        AnnotationAdapter reset( final org.eclipse.sisu.space.AnnotationVisitor _delegate )
+        {
+            delegate = _delegate;
+            delegate.enterAnnotation();
+            return this;
+        }
 
-    static AnnotationVisitor adapt( final org.eclipse.sisu.space.AnnotationVisitor delegate )
-    {
-        return null == delegate ? null : new AnnotationVisitor()
+        public void visit( final String name, final Object value )
         {
+            if ( null != strings )
             {
-                delegate.enterAnnotation();
+                delegate.visitElement( name, strings.value( value ) );
             }
-
-            public void visit( final String name, final Object value )
+            else
             {
                 delegate.visitElement( name, value instanceof Type ? ( (Type) value ).getClassName() : value );
             }
+        }
 
-            public void visitEnd()
-            {
-                delegate.leaveAnnotation();
-            }
-        };
+        public void visitEnd()
+        {
+            delegate.leaveAnnotation();
+            delegate = null;
+        }
     }
 }
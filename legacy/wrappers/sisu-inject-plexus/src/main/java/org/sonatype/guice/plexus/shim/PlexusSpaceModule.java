@@ -10,7 +10,10 @@
  *******************************************************************************/
 package org.sonatype.guice.plexus.shim;
 
+import org.sonatype.guice.bean.binders.IncrementalScanning;
+import org.sonatype.guice.bean.locators.MutableBeanLocator;
 import org.sonatype.guice.bean.reflect.ClassSpace;
+import org.sonatype.guice.bean.scanners.ScanReport;
 
 import com.google.inject.Binder;
 import com.google.inject.Module;
@@ -19,15 +22,43 @@ import com.google.inject.Module;
 public final class PlexusSpaceModule
     implements Module
 {
-    private final Module delegate;
+    private final ClassSpace space;
+
+    private ScanReport report = ScanReport.global();
 
     public PlexusSpaceModule( final ClassSpace space )
     {
-        delegate = new org.eclipse.sisu.plexus.PlexusSpaceModule( space );
+        this.space = space;
+    }
+
+    public static IncrementalScanning incremental( final MutableBeanLocator locator, final Module... bindings )
+    {
+        return new IncrementalScanning( locator, new IncrementalScanning.SpaceModuleFactory()
+        {
+            public Module create( final ClassSpace space )
+            {
+                return new PlexusSpaceModule( space );
+            }
+        }, bindings );
+    }
+
+    public PlexusSpaceModule with( final ScanReport _report )
+    {
+        report = _report;
+        return this;
     }
 
     public void configure( final Binder binder )
     {
-        delegate.configure( binder );
+        if ( null != report )
+        {
+            // plexus components are found from their XML descriptors, so only the classes they name are reported
+            new org.eclipse.sisu.plexus.PlexusSpaceModule( report.wrap( space ) ).configure( binder );
+            report.flush();
+        }
+        else
+        {
+            new org.eclipse.sisu.plexus.PlexusSpaceModule( space ).configure( binder );
+        }
     }
 }
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.plexus.annotations;
+
+import org.codehaus.plexus.component.annotations.Component;
+
+import junit.framework.TestCase;
+
+public class ComponentImplTest
+    extends TestCase
+{
+    @Component( role = Runnable.class, hint = "example", instantiationStrategy = "per-lookup", description = "Some" )
+    static class Annotated
+    {
+    }
+
+    public void testEqualsAndHashCode()
+    {
+        final Component annotation = Annotated.class.getAnnotation( Component.class );
+
+        final Component component = new ComponentImpl( Runnable.class, "example", "per-lookup", "Some" );
+        final Component copy = new ComponentImpl( Runnable.class, new String( "example" ), "per-lookup", "Some" );
+
+        assertEquals( component, copy );
+        assertEquals( copy, component );
+        assertEquals( component.hashCode(), copy.hashCode() );
+
+        assertEquals( component, annotation );
+        assertEquals( annotation, component );
+        assertEquals( annotation.hashCode(), component.hashCode() );
+
+        assertFalse( component.equals( new ComponentImpl( Thread.class, "example", "per-lookup", "Some" ) ) );
+        assertFalse( component.equals( new ComponentImpl( Runnable.class, "other", "per-lookup", "Some" ) ) );
+        assertFalse( component.equals( new ComponentImpl( Runnable.class, "example", "singleton", "Some" ) ) );
+        assertFalse( component.equals( new ComponentImpl( Runnable.class, "example", "per-lookup", "" ) ) );
+        assertFalse( component.equals( "example" ) );
+
+        try
+        {
+            new ComponentImpl( Runnable.class, null, "per-lookup", "Some" );
+            fail( "Expected IllegalArgumentException" );
+        }
+        catch ( final IllegalArgumentException e )
+        {
+            // expected
+        }
+    }
+
+    public void testIntern()
+    {
+        final ComponentImpl component = ComponentImpl.intern( Runnable.class, "interned", "singleton", "" );
+
+        assertSame( component, ComponentImpl.intern( Runnable.class, new String( "interned" ), "singleton", "" ) );
+        assertEquals( new ComponentImpl( Runnable.class, "interned", "singleton", "" ), component );
+
+        final ComponentImpl perLookup = ComponentImpl.intern( Runnable.class, "interned", "per-lookup", "" );
+        assertNotSame( component, perLookup );
+        assertEquals( "per-lookup", perLookup.instantiationStrategy() );
+        assertSame( component, ComponentImpl.intern( Runnable.class, "interned", "singleton", "" ) );
+
+        assertNotSame( component, ComponentImpl.intern( Thread.class, "interned", "singleton", "" ) );
+        assertNotSame( component, ComponentImpl.intern( Runnable.class, "other", "singleton", "" ) );
+    }
+}
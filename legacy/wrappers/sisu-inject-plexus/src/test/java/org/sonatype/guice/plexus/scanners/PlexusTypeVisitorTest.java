@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2010-present Sonatype, Inc.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Stuart McCulloch (Sonatype, Inc.) - initial API and implementation
+ *******************************************************************************/
+package org.sonatype.guice.plexus.scanners;
+
+import java.lang.annotation.Annotation;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.codehaus.plexus.component.annotations.Component;
+import org.sonatype.guice.bean.reflect.DeferredClass;
+import org.sonatype.guice.bean.reflect.URLClassSpace;
+import org.sonatype.guice.bean.scanners.ClassSpaceScanner;
+import org.sonatype.guice.bean.scanners.asm.AnnotationVisitor;
+import org.sonatype.guice.bean.scanners.asm.ClassVisitor;
+import org.sonatype.guice.bean.scanners.asm.Type;
+
+import junit.framework.TestCase;
+
+public class PlexusTypeVisitorTest
+    extends TestCase
+{
+    @Component( role = Runnable.class, hint = "a", instantiationStrategy = "per-lookup" )
+    static class ComponentA
+        implements Runnable
+    {
+        public void run()
+        {
+        }
+    }
+
+    @Deprecated
+    static class PlainB
+        implements Runnable
+    {
+        public void run()
+        {
+        }
+    }
+
+    @Component( role = Runnable.class, hint = "c" )
+    static class ComponentC
+        implements Runnable
+    {
+        public void run()
+        {
+        }
+    }
+
+    @Component( role = Runnable.class, hint = "shared", description = "Shared description" )
+    static class SharedD
+        implements Runnable
+    {
+        public void run()
+        {
+        }
+    }
+
+    @Component( role = Runnable.class, hint = "shared", description = "Shared description" )
+    static class SharedE
+        implements Runnable
+    {
+        public void run()
+        {
+        }
+    }
+
+    public void testVisitorStateIsResetBetweenClasses()
+    {
+        final List<String> heard = new ArrayList<String>();
+        final PlexusTypeVisitor visitor = new PlexusTypeVisitor( new PlexusTypeListener()
+        {
+            public void hear( final Annotation qualifier, final Class<?> qualifiedType, final Object source )
+            {
+                heard.add( qualifiedType.getSimpleName() );
+            }
+
+            public void hear( final Component component, final DeferredClass<?> implementation, final Object source )
+            {
+                heard.add( component.hint() + ':' + component.instantiationStrategy() + ':'
+                    + implementation.getName().substring( implementation.getName().indexOf( '$' ) + 1 ) );
+            }
+        } );
+
+        visitor.visit( new URLClassSpace( getClass().getClassLoader() ) );
+
+        // classes visited after a component must not see its annotation values
+        for ( final Class<?> clazz : new Class<?>[] { ComponentA.class, PlainB.class, ComponentC.class, PlainB.class } )
+        {
+            final URL url = classURL( clazz );
+            ClassSpaceScanner.accept( visitor.visitClass( url ), url );
+        }
+
+        // the same annotation adapter is handed out for each annotated class
+        final AnnotationVisitor[] adapters = new AnnotationVisitor[2];
+        for ( int i = 0; i < adapters.length; i++ )
+        {
+            final ClassVisitor cv = visitor.visitClass( classURL( ComponentC.class ) );
+            cv.visit( 0, 0, ComponentC.class.getName().replace( '.', '/' ), null, "java/lang/Object",
+                      new String[] { "java/lang/Runnable" } );
+            adapters[i] = cv.visitAnnotation( "Lorg/codehaus/plexus/component/annotations/Component;", true );
+            adapters[i].visit( "role", Type.getObjectType( "java/lang/Runnable" ) );
+            adapters[i].visit( "hint", "manual" + i );
+            adapters[i].visitEnd();
+            cv.visitEnd();
+        }
+        assertSame( adapters[0], adapters[1] );
+
+        visitor.visitEnd();
+
+        assertEquals( Arrays.asList( "a:per-lookup:ComponentA", "c:singleton:ComponentC",
+                                     "manual0:singleton:ComponentC", "manual1:singleton:ComponentC" ), heard );
+    }
+
+    public void testStringsAreInternedPerScan()
+    {
+        final List<Component> heard = new ArrayList<Component>();
+        final PlexusTypeVisitor visitor = new PlexusTypeVisitor( new PlexusTypeListener()
+        {
+            public void hear( final Annotation qualifier, final Class<?> qualifiedType, final Object source )
+            {
+            }
+
+            public void hear( final Component component, final DeferredClass<?> implementation, final Object source )
+            {
+                heard.add( component );
+            }
+        } );
+
+        for ( int scan = 0; scan < 2; scan++ )
+        {
+            visitor.visit( new URLClassSpace( getClass().getClassLoader() ) );
+            for ( final Class<?> clazz : new Class<?>[] { SharedD.class, SharedE.class } )
+            {
+                final URL url = classURL( clazz );
+                ClassSpaceScanner.accept( visitor.visitClass( url ), url );
+            }
+            visitor.visitEnd();
+        }
+
+        // each class file has its own constant pool, so equal strings are only shared through the table
+        assertEquals( 4, heard.size() );
+        assertSame( heard.get( 0 ).description(), heard.get( 1 ).description() );
+
+        // a new scan starts with a new table
+        assertNotSame( heard.get( 0 ).description(), heard.get( 2 ).description() );
+        assertSame( heard.get( 2 ).description(), heard.get( 3 ).description() );
+    }
+
+    private static URL classURL( final Class<?> clazz )
+    {
+        return clazz.getClassLoader().getResource( clazz.getName().replace( '.', '/' ) + ".class" );
+    }
+}